@@ -0,0 +1,65 @@
+package org.jboss.xavier.analytics.pojo;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores a set of strings in a single text column, sorted and enclosed by separators (e.g. "|a|b|c|")
+ * so that the membership of an element can be checked with a LIKE '%|element|%' condition.
+ * Separators and escape characters within the elements are escaped, empty sets are stored as NULL.
+ */
+@Converter
+public class StringSetConverter implements AttributeConverter<Set<String>, String> {
+
+    public static final char SEPARATOR = '|';
+    private static final char ESCAPE = '\\';
+
+    @Override
+    public String convertToDatabaseColumn(Set<String> attribute) {
+        if (attribute == null || attribute.isEmpty()) return null;
+        return attribute.stream()
+                .filter(Objects::nonNull)
+                .sorted()
+                .map(StringSetConverter::encodeElement)
+                .collect(Collectors.joining(String.valueOf(SEPARATOR), String.valueOf(SEPARATOR), String.valueOf(SEPARATOR)));
+    }
+
+    @Override
+    public Set<String> convertToEntityAttribute(String dbData) {
+        return decode(dbData);
+    }
+
+    public static String encodeElement(String element) {
+        return element.replace(String.valueOf(ESCAPE), "" + ESCAPE + ESCAPE).replace(String.valueOf(SEPARATOR), "" + ESCAPE + SEPARATOR);
+    }
+
+    public static Set<String> decode(String dbData) {
+        Set<String> elements = new HashSet<>();
+        if (dbData == null) return elements;
+
+        StringBuilder element = new StringBuilder();
+        for (int i = 1; i < dbData.length(); i++) {
+            char c = dbData.charAt(i);
+            if (c == ESCAPE && i + 1 < dbData.length()) {
+                element.append(dbData.charAt(++i));
+            } else if (c == SEPARATOR) {
+                elements.add(element.toString());
+                element.setLength(0);
+            } else {
+                element.append(c);
+            }
+        }
+        return elements;
+    }
+
+    public static Set<String> decodeAll(Collection<String> dbData) {
+        return dbData.stream()
+                .flatMap(encodedElements -> decode(encodedElements).stream())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,147 @@
+package org.jboss.xavier.analytics.pojo.output;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.util.Date;
+
+/**
+ * JSON document of a report of a created analysis, stored gzip compressed along with its entity tag
+ * so that it can be served as it is, without reading the report's entities again
+ */
+@Entity
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ReportSnapshotModel_" + ReportSnapshotModel.ANALYSIS_ID + "_" + ReportSnapshotModel.REPORT_TYPE + "_unique",
+                        columnNames = {ReportSnapshotModel.ANALYSIS_ID, ReportSnapshotModel.REPORT_TYPE})
+        }
+)
+public class ReportSnapshotModel
+{
+    static final String ANALYSIS_ID = "analysis_id";
+    static final String REPORT_TYPE = "report_type";
+
+    public enum ReportType {
+        INITIAL_SAVINGS_ESTIMATION,
+        WORKLOAD_SUMMARY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "REPORTSNAPSHOTMODEL_ID_GENERATOR")
+    @GenericGenerator(
+            name = "REPORTSNAPSHOTMODEL_ID_GENERATOR",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "REPORTSNAPSHOTMODEL_SEQUENCE")
+            }
+    )
+    private Long id;
+
+    // not a foreign key, the snapshots are deleted along with the analysis by AnalysisService
+    @Column(name = ANALYSIS_ID, nullable = false)
+    private Long analysisId;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = REPORT_TYPE, nullable = false)
+    private ReportType reportType;
+
+    private String etag;
+
+    // the version of the analysis the document has been read at: any later change to the analysis makes it stale
+    @Column(nullable = false)
+    private Date analysisLastUpdate;
+
+    // bytea on PostgreSQL
+    @Column(nullable = false, length = Integer.MAX_VALUE)
+    private byte[] content;
+
+    private Date inserted;
+
+    public ReportSnapshotModel() {}
+
+    public ReportSnapshotModel(Long analysisId, String owner, ReportType reportType, String etag, Date analysisLastUpdate, byte[] content) {
+        this.analysisId = analysisId;
+        this.owner = owner;
+        this.reportType = reportType;
+        this.etag = etag;
+        this.analysisLastUpdate = analysisLastUpdate;
+        this.content = content;
+        this.inserted = new Date();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public void setAnalysisId(Long analysisId) {
+        this.analysisId = analysisId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public ReportType getReportType() {
+        return reportType;
+    }
+
+    public void setReportType(ReportType reportType) {
+        this.reportType = reportType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public Date getAnalysisLastUpdate() {
+        return analysisLastUpdate;
+    }
+
+    public void setAnalysisLastUpdate(Date analysisLastUpdate) {
+        this.analysisLastUpdate = analysisLastUpdate;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public Date getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(Date inserted) {
+        this.inserted = inserted;
+    }
+}
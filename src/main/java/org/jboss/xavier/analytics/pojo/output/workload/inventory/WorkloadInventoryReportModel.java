@@ -8,11 +8,11 @@ import org.apache.camel.dataformat.bindy.annotation.FormatFactories;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Parameter;
 import org.jboss.xavier.analytics.pojo.BindyStringSetFormatFactory;
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 
-import javax.persistence.CollectionTable;
 import javax.persistence.Column;
-import javax.persistence.ElementCollection;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
@@ -43,7 +43,11 @@ import java.util.Set;
                         columnList = WorkloadInventoryReportModel.OS_NAME_COLUMN, unique = false),
                 @Index(name = "WorkloadInventoryReportModel_" +
                         WorkloadInventoryReportModel.COMPLEXITY_COLUMN + "_index",
-                        columnList = WorkloadInventoryReportModel.COMPLEXITY_COLUMN, unique = false)
+                        columnList = WorkloadInventoryReportModel.COMPLEXITY_COLUMN, unique = false),
+                // backs the cursor pagination, sorted by provider, datacenter, cluster, VM name and id
+                @Index(name = "WorkloadInventoryReportModel_cursor_index",
+                        columnList = WorkloadInventoryReportModel.ANALYSIS_ID_COLUMN + ", provider, datacenter, cluster, " +
+                                WorkloadInventoryReportModel.VM_NAME_COLUMN + ", id", unique = false)
         }
 )
 public class WorkloadInventoryReportModel
@@ -54,11 +58,20 @@ public class WorkloadInventoryReportModel
     static final String VM_NAME_COLUMN = "vm_name";
     static final String OS_NAME_COLUMN = "os_name";
     static final String COMPLEXITY_COLUMN = "complexity";
+    static final String WORKLOADS_COLUMN = "workloads";
+    static final String RECOMMENDED_TARGETS_IMS_COLUMN = "recommended_targets_ims";
+    static final String FLAGS_IMS_COLUMN = "flags_ims";
+    // varchar on every supported database, since the distinct filter values are grouped by these columns, long enough
+    // for all the workloads, targets and flags a VM can have
+    static final int ENCODED_SET_COLUMN_LENGTH = 65535;
 
     public static final String PROVIDER_FIELD = "provider";
     public static final String DATACENTER_FIELD = "datacenter";
     public static final String CLUSTER_FIELD = "cluster";
     public static final String VM_NAME_FIELD = "vmName";
+    public static final String ENCODED_WORKLOADS_FIELD = "encodedWorkloads";
+    public static final String ENCODED_RECOMMENDED_TARGETS_IMS_FIELD = "encodedRecommendedTargetsIMS";
+    public static final String ENCODED_FLAGS_IMS_FIELD = "encodedFlagsIMS";
 
     @Id
     @GeneratedValue(strategy = javax.persistence.GenerationType.AUTO, generator = "WORKLOADINVENTORYREPORTMODEL_ID_GENERATOR")
@@ -107,15 +120,15 @@ public class WorkloadInventoryReportModel
     private Integer cpuCores;
 
     @DataField(pos = 10, columnName = "Workload")
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(
-            name = "workload_inventory_report_model_workloads",
-            indexes = {
-                    @Index(columnList = "workload_inventory_report_model_id", unique = false)
-            }
-    )
+    @Convert(converter = StringSetConverter.class)
+    @Column(name = WORKLOADS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH)
     private Set<String> workloads;
 
+    // read only view of the encoded column, to filter by the elements of the set
+    @XStreamOmitField
+    @Column(name = WORKLOADS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH, insertable = false, updatable = false)
+    private String encodedWorkloads;
+
     @DataField(pos = 11, columnName = "Effort")
     @Column(name = COMPLEXITY_COLUMN)
     private String complexity;
@@ -123,25 +136,23 @@ public class WorkloadInventoryReportModel
     @DataField(pos = 12, columnName = "Recommended targets")
     // with "IMS" suffix in case one day we will have
     // their "AMM" counterparts
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(
-            name = "workload_inventory_report_model_recommended_targetsims",
-            indexes = {
-                    @Index(columnList = "workload_inventory_report_model_id", unique = false)
-            }
-    )
+    @Convert(converter = StringSetConverter.class)
+    @Column(name = RECOMMENDED_TARGETS_IMS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH)
     private Set<String> recommendedTargetsIMS;
 
+    @XStreamOmitField
+    @Column(name = RECOMMENDED_TARGETS_IMS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH, insertable = false, updatable = false)
+    private String encodedRecommendedTargetsIMS;
+
     @DataField(pos = 13, columnName = "Flags IMS")
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(
-            name = "workload_inventory_report_model_flagsims",
-            indexes = {
-                    @Index(columnList = "workload_inventory_report_model_id", unique = false)
-            }
-    )
+    @Convert(converter = StringSetConverter.class)
+    @Column(name = FLAGS_IMS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH)
     private Set<String> flagsIMS;
 
+    @XStreamOmitField
+    @Column(name = FLAGS_IMS_COLUMN, length = ENCODED_SET_COLUMN_LENGTH, insertable = false, updatable = false)
+    private String encodedFlagsIMS;
+
     @DataField(pos = 14, columnName = "Product")
     private String product;
 
@@ -22,13 +22,15 @@ import java.util.Set;
         )
 )
 
+// PostgreSQL only: every element of the encoded column (see StringSetConverter) is matched and unescaped
 @NamedNativeQuery(
         name = "FlagModel.calculateFlagModels",
-        query = "select B.flagsims as flag, A.os_name as osName, count(distinct A.cluster) as clusters, count(distinct A.id) as vms \n" +
-                "from workload_inventory_report_model A,  workload_inventory_report_model_flagsims B \n" +
-                "where A.analysis_id = :analysisId and A.id=B.workload_inventory_report_model_id \n" +
-                "group by B.flagsims, A.os_name \n" +
-                "order by vms desc, B.flagsims, A.os_name",
+        query = "select E.element as flag, E.os_name as osName, count(distinct E.cluster) as clusters, count(distinct E.id) as vms \n" +
+                "from (select A.id, A.cluster, A.os_name, regexp_replace(M.element[1], '\\\\(.)', '\\1', 'g') as element \n" +
+                "from workload_inventory_report_model A cross join lateral regexp_matches(A.flags_ims, '(([^|\\\\]|\\\\.)+)', 'g') as M(element) \n" +
+                "where A.analysis_id = :analysisId) E \n" +
+                "group by E.element, E.os_name \n" +
+                "order by vms desc, E.element, E.os_name",
         resultSetMapping = "mappingFlagModels"
 )
 
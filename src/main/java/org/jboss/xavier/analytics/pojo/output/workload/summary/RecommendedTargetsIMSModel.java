@@ -21,7 +21,11 @@ import javax.persistence.*;
 
 @NamedNativeQuery(
         name = "RecommendedTargetsIMSModel.calculateRecommendedTargetsIMS",
-        query = "select count(distinct wi.id) as total, coalesce(sum(case when lower(rt.recommended_targetsims)='rhv' then 1 else 0 end), 0) as rhv, coalesce(sum(case when lower(rt.recommended_targetsims)='osp' then 1 else 0 end), 0) as osp, coalesce(sum(case when lower(rt.recommended_targetsims)='rhel' then 1 else 0 end), 0) as rhel from workload_inventory_report_model_recommended_targetsims rt right join workload_inventory_report_model wi on rt.workload_inventory_report_model_id=wi.id where wi.analysis_id = :analysisId",
+        query = "select count(wi.id) as total, " +
+                "coalesce(sum(case when lower(wi.recommended_targets_ims) like '%|rhv|%' then 1 else 0 end), 0) as rhv, " +
+                "coalesce(sum(case when lower(wi.recommended_targets_ims) like '%|osp|%' then 1 else 0 end), 0) as osp, " +
+                "coalesce(sum(case when lower(wi.recommended_targets_ims) like '%|rhel|%' then 1 else 0 end), 0) as rhel " +
+                "from workload_inventory_report_model wi where wi.analysis_id = :analysisId",
         resultSetMapping = "mappingRecommendedTargetsIMSModels"
 )
 
@@ -0,0 +1,24 @@
+package org.jboss.xavier.integrations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = "parallel.analysis.stages", havingValue = "true")
+public class AnalysisStagesConfiguration {
+    public static final String ANALYSIS_STAGES_EXECUTOR_SERVICE = "analysisStagesExecutorService";
+
+    @Value("${parallel.analysis.stages.poolSize:4}")
+    int poolSize;
+
+    @Bean(name = ANALYSIS_STAGES_EXECUTOR_SERVICE, destroyMethod = "shutdown")
+    public ExecutorService analysisStagesExecutorService() {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("AnalysisStages-"));
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.jboss.xavier.integrations;
 
+import org.apache.camel.util.IOHelper;
 import org.jboss.xavier.analytics.pojo.input.UploadFormInputDataModel;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 import org.jboss.xavier.analytics.pojo.output.InitialSavingsEstimationReportModel;
@@ -30,22 +31,28 @@ import org.kie.api.runtime.rule.QueryResultsRow;
 import org.kie.server.api.model.KieServiceResponse;
 import org.springframework.stereotype.Component;
 
+import java.io.Closeable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
 @Component
 public class DecisionServerHelper {
 
+    public static final String INITIAL_SAVINGS_ESTIMATION_KIE_SESSION_ID = "kiesession0";
+
     /** The random. */
     private final Random random = new Random();
 
     private SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
 
     public BatchExecutionCommand createMigrationAnalyticsCommand(Object inputDataModel) {
-        return generateCommands(inputDataModel, "get InitialSavingsEstimationReports", "kiesession0");
+        return generateCommands(inputDataModel, "get InitialSavingsEstimationReports", INITIAL_SAVINGS_ESTIMATION_KIE_SESSION_ID);
     }
 
     public BatchExecutionCommand generateCommands(Object insert, String retrieveQueryId, String kiseSessionId)
@@ -58,6 +65,36 @@ public class DecisionServerHelper {
         return commands.newBatchExecution(cmds, kiseSessionId);
     }
 
+    public BatchExecutionCommand generateBatchCommands(Collection<?> inserts, String retrieveQueryId, String kieSessionId)
+    {
+        List<Command<?>> cmds = new ArrayList<Command<?>>(inserts.size() + 2);
+        KieCommands commands = KieServices.Factory.get().getCommands();
+        inserts.forEach(insert -> cmds.add(commands.newInsert(insert)));
+        cmds.add(commands.newFireAllRules());
+        cmds.add(commands.newQuery("output", retrieveQueryId));
+        return commands.newBatchExecution(cmds, kieSessionId);
+    }
+
+    public <T> List<List<T>> partition(Collection<T> elements, int batchSize)
+    {
+        List<T> elementsList = new ArrayList<>(elements);
+        List<List<T>> batches = new ArrayList<>((elementsList.size() + batchSize - 1) / batchSize);
+        for (int i = 0; i < elementsList.size(); i += batchSize) {
+            batches.add(new ArrayList<>(elementsList.subList(i, Math.min(i + batchSize, elementsList.size()))));
+        }
+        return batches;
+    }
+
+    /**
+     * Lazy version of {@link #partition(Collection, int)}: every batch is filled only when it's requested,
+     * so that the elements can be sent while the source is still producing them.
+     * Closing the returned iterator closes the source too, if it's {@link Closeable}.
+     */
+    public <T> Iterator<List<T>> partitionStreaming(Iterator<T> elements, int batchSize)
+    {
+        return new BatchIterator<>(elements, batchSize);
+    }
+
     public ReportDataModel extractReports(KieServiceResponse<ExecutionResults> response) {
         ExecutionResults res = response.getResult();
         ReportDataModel report = null;
@@ -106,6 +143,22 @@ public class DecisionServerHelper {
         return report;
     }
 
+    public List<WorkloadInventoryReportModel> extractWorkloadInventoryReportModels(KieServiceResponse<ExecutionResults> response) {
+        ExecutionResults res = response.getResult();
+        List<WorkloadInventoryReportModel> reports = new ArrayList<>();
+        if (res != null) {
+            QueryResults queryResults = (QueryResults) res.getValue("output");
+            // the whole batch of VMs would be lost without any trace
+            if (queryResults == null) {
+                throw new IllegalStateException("The decision server response has no \"output\" query results: " + response.getMsg());
+            }
+            for (QueryResultsRow queryResult : queryResults) {
+                reports.add((WorkloadInventoryReportModel) queryResult.get("report"));
+            }
+        }
+        return reports;
+    }
+
     public AnalysisModel createSampleAnalysisModel(KieServiceResponse<ExecutionResults> response)
     {
         AnalysisModel analysis = new AnalysisModel();
@@ -119,4 +172,33 @@ public class DecisionServerHelper {
         return analysis;
     }
 
+    private static class BatchIterator<T> implements Iterator<List<T>>, Closeable {
+        private final Iterator<T> elements;
+        private final int batchSize;
+
+        BatchIterator(Iterator<T> elements, int batchSize) {
+            this.elements = elements;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return elements.hasNext();
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            List<T> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && elements.hasNext()) {
+                batch.add(elements.next());
+            }
+            return batch;
+        }
+
+        @Override
+        public void close() {
+            IOHelper.closeIterator(elements);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package org.jboss.xavier.integrations.decisionserver;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.kie.api.KieServices;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.model.KieSessionModel;
+import org.kie.api.command.BatchExecutionCommand;
+import org.kie.api.runtime.ExecutionResults;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.server.api.model.KieServiceResponse;
+import org.kie.server.api.model.ServiceResponse;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+/**
+ * Runs the xavier-analytics kjar ksessions (e.g. kiesession0, WorkloadInventoryKSession0
+ * and WorkloadInventoryComplexityKSession0) inside this JVM, avoiding both the HTTP call
+ * and the XStream (un)marshalling of the remote KIE server.
+ * The response is the same kind the KIE server gives back so that the DecisionServerHelper extractors work in both modes.
+ * The kjar is the one deployed to the KIE server: it's resolved from the Maven repositories by kie-ci,
+ * so the application has to be built with the 'embedded-decisions' profile, unless it's already in the KIE repository.
+ */
+@Named("embeddedDecisionExecutor")
+@Slf4j
+public class EmbeddedDecisionExecutor {
+
+    @Value("${kieserver.embedded.releaseId:org.jboss.xavier:xavier-analytics:0.0.1-SNAPSHOT}")
+    private String releaseId;
+
+    private volatile KieContainer kieContainer;
+
+    public KieServiceResponse<ExecutionResults> execute(BatchExecutionCommand command, String kieSessionId) {
+        KieContainer container = getKieContainer();
+
+        ExecutionResults results;
+        KieSessionModel kieSessionModel = container.getKieSessionModel(kieSessionId);
+        if (kieSessionModel == null) {
+            throw new IllegalArgumentException("The kjar " + container.getReleaseId() + " has no '" + kieSessionId + "' ksession");
+        }
+        if (kieSessionModel.getType() == KieSessionModel.KieSessionType.STATEFUL) {
+            KieSession kieSession = container.newKieSession(kieSessionId);
+            try {
+                results = kieSession.execute(command);
+            } finally {
+                kieSession.dispose();
+            }
+        } else {
+            results = container.newStatelessKieSession(kieSessionId).execute(command);
+        }
+        return new ServiceResponse<>(KieServiceResponse.ResponseType.SUCCESS, "Executed on embedded session " + kieSessionId, results);
+    }
+
+    private KieContainer getKieContainer() {
+        if (kieContainer == null) {
+            synchronized (this) {
+                if (kieContainer == null) {
+                    String[] gav = StringUtils.split(releaseId, ':');
+                    if (gav == null || gav.length != 3) {
+                        throw new IllegalArgumentException("'kieserver.embedded.releaseId' must be in the groupId:artifactId:version format but it was '" + releaseId + "'");
+                    }
+                    KieServices kieServices = KieServices.Factory.get();
+                    ReleaseId kjarReleaseId = kieServices.newReleaseId(gav[0], gav[1], gav[2]);
+                    log.info("Loading kjar {} for the embedded decision executor", kjarReleaseId);
+                    kieContainer = kieServices.newKieContainer(kjarReleaseId);
+                }
+            }
+        }
+        return kieContainer;
+    }
+
+    @PreDestroy
+    public void dispose() {
+        if (kieContainer != null) {
+            kieContainer.dispose();
+        }
+    }
+}
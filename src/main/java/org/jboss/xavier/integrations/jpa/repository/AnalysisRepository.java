@@ -5,9 +5,11 @@ import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
@@ -26,6 +28,32 @@ public interface AnalysisRepository extends JpaRepository<AnalysisModel, Long>
 
     AnalysisModel findByIdAndStatusIgnoreCaseNot(Long id, String status);
 
+    // the files of a payload are calculated concurrently, so the analysis is updated only in the columns each change is about
+    // instead of saving the whole entity as it was read
+    @Transactional
+    @Modifying
+    @Query("update AnalysisModel analysis set analysis.status = :status, analysis.lastUpdate = :lastUpdate where analysis.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") String status, @Param("lastUpdate") Date lastUpdate);
+
+    @Transactional
+    @Modifying
+    @Query("update AnalysisModel analysis set analysis.status = :status, analysis.lastUpdate = :lastUpdate where analysis.id = :id and upper(analysis.status) <> upper(:currentStatusNot)")
+    int updateStatusIfCurrentStatusNot(@Param("id") Long id, @Param("status") String status, @Param("currentStatusNot") String currentStatusNot, @Param("lastUpdate") Date lastUpdate);
+
+    @Transactional
+    @Modifying
+    @Query("update AnalysisModel analysis set analysis.payloadStorageId = :payloadStorageId, analysis.lastUpdate = :lastUpdate where analysis.id = :id")
+    int updatePayloadStorageId(@Param("id") Long id, @Param("payloadStorageId") String payloadStorageId, @Param("lastUpdate") Date lastUpdate);
+
+    @Transactional
+    @Modifying
+    @Query("update AnalysisModel analysis set analysis.lastUpdate = :lastUpdate where analysis.id = :id")
+    int updateLastUpdate(@Param("id") Long id, @Param("lastUpdate") Date lastUpdate);
+
+    // every change to the analyses of an owner changes at least one of these values
+    @Query("select count(analysis.id), max(analysis.id), max(analysis.lastUpdate) from AnalysisModel analysis where analysis.owner = :owner")
+    List<Object[]> findVersionByOwner(@Param("owner") String owner);
+
     @Query(nativeQuery = true, value = "\n" +
             "select am.id, am.owner, am.payload_name as payloadName, am.status as analysisStatus, am.inserted as analysisInserted, count(wirm.id) as totalVms \n" +
             "from analysis_model am \n" +
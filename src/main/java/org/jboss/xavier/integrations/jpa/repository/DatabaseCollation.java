@@ -0,0 +1,62 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorts texts as the "order by" of the database does, i.e. following its collation, so that the models calculated in
+ * Java are in the same order of the ones queried.
+ * The in memory databases (H2 and HSQLDB) compare the texts by code point as the natural order of Java does while
+ * PostgreSQL is asked to sort them.
+ */
+@Repository
+public class DatabaseCollation
+{
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private boolean sortedByDatabase;
+
+    @PostConstruct
+    public void init() throws MetaDataAccessException
+    {
+        String databaseProductName = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName").toString();
+        sortedByDatabase = databaseProductName.toUpperCase().contains("POSTGRESQL");
+    }
+
+    /**
+     * @param texts the (not null) texts to be compared, with a single query
+     * @return the order of the given texts, that can't compare any other text
+     */
+    public Comparator<String> getOrder(Collection<String> texts)
+    {
+        if (!sortedByDatabase || texts.isEmpty()) return Comparator.naturalOrder();
+
+        List<String> sortedTexts = jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement("select element from unnest(?) as texts(element) order by element");
+            preparedStatement.setArray(1, connection.createArrayOf("text", texts.toArray()));
+            return preparedStatement;
+        }, (resultSet, rowNum) -> resultSet.getString(1));
+
+        Map<String, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < sortedTexts.size(); i++) {
+            ranks.put(sortedTexts.get(i), i);
+        }
+        return Comparator.comparing(ranks::get);
+    }
+}
@@ -0,0 +1,81 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Writes rows with the COPY command of PostgreSQL, the only class using the API of the PostgreSQL driver
+ */
+class PostgreSQLCopyWriter
+{
+    // the offset is the one of the JVM's zone, the zone the driver binds the timestamps in: "timestamp" columns ignore it
+    // and store the same local date time as JPA while "timestamptz" ones store the same instant
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSxxx");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    PostgreSQLCopyWriter(DataSource dataSource, JdbcTemplate jdbcTemplate, int batchSize)
+    {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    void copy(String table, String[] columns, List<Object[]> rows)
+    {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("copy " + table + " (" + String.join(", ", columns) + ") from stdin with (format csv)");
+            try {
+                StringBuilder csv = new StringBuilder();
+                for (int i = 0; i < rows.size(); i++) {
+                    appendCsvRow(csv, rows.get(i));
+                    if ((i + 1) % batchSize == 0 || i == rows.size() - 1) {
+                        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+                        copyIn.writeToCopy(bytes, 0, bytes.length);
+                        csv.setLength(0);
+                    }
+                }
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) copyIn.cancelCopy();
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("COPY " + table, null, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // unquoted empty values are NULLs while all the other values are quoted, doubling the quotes within them
+    static void appendCsvRow(StringBuilder csv, Object[] row)
+    {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) csv.append(',');
+            if (row[i] != null) csv.append('"').append(toText(row[i]).replace("\"", "\"\"")).append('"');
+        }
+        csv.append('\n');
+    }
+
+    private static String toText(Object value)
+    {
+        if (value instanceof Timestamp) {
+            return TIMESTAMP_FORMATTER.format(((Timestamp) value).toInstant().atZone(ZoneId.systemDefault()));
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import org.jboss.xavier.analytics.pojo.output.ReportSnapshotModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ReportSnapshotRepository extends JpaRepository<ReportSnapshotModel, Long>
+{
+    ReportSnapshotModel findByOwnerAndAnalysisIdAndReportType(String owner, Long analysisId, ReportSnapshotModel.ReportType reportType);
+
+    // unlike delete(id), it doesn't fail if a concurrent request has already deleted the snapshot
+    @Transactional
+    @Modifying
+    @Query("delete from ReportSnapshotModel snapshot where snapshot.id = :id")
+    int deleteSnapshot(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ReportSnapshotModel snapshot where snapshot.analysisId = :analysisId")
+    int deleteByAnalysisId(@Param("analysisId") Long analysisId);
+}
@@ -0,0 +1,134 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inserts the {@link WorkloadInventoryReportModel}s of an analysis bypassing the persistence context: the ids are
+ * allocated from the entity's sequence with a single query and the rows are written with COPY on PostgreSQL and with
+ * JDBC batches on the other supported databases (H2 and HSQLDB).
+ * On any other database {@link #isSupported()} is false and the reports have to be persisted through JPA.
+ */
+@Repository
+@Slf4j
+public class WorkloadInventoryReportBulkWriter
+{
+    static final String TABLE = "workload_inventory_report_model";
+    static final String SEQUENCE = "workloadinventoryreport_sequence";
+
+    private static final String[] COLUMNS = {"id", "analysis_id", "provider", "datacenter", "cluster", "vm_name", "os_name", "os_description",
+            "disk_space", "memory", "cpu_cores", "complexity", "product", "version", "host_name", "creation_date", "ssa_enabled",
+            "workloads", "recommended_targets_ims", "flags_ims"};
+    private static final int[] COLUMN_TYPES = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BOOLEAN,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+
+    private enum Database
+    {
+        POSTGRESQL("select nextval('" + SEQUENCE + "') from generate_series(1, ?)"),
+        H2("select next value for " + SEQUENCE + " from system_range(1, ?)"),
+        HSQLDB("select next value for " + SEQUENCE + " from unnest(sequence_array(1, ?, 1))");
+
+        private final String nextValuesQuery;
+
+        Database(String nextValuesQuery)
+        {
+            this.nextValuesQuery = nextValuesQuery;
+        }
+    }
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Value("${workloadinventoryreport.bulk.enabled:true}")
+    private boolean enabled;
+
+    @Value("${workloadinventoryreport.bulk.batchSize:1000}")
+    private int batchSize;
+
+    private final StringSetConverter stringSetConverter = new StringSetConverter();
+
+    private Database database;
+
+    private PostgreSQLCopyWriter copyWriter;
+
+    @PostConstruct
+    public void init()
+    {
+        if (!enabled) return;
+        try {
+            String databaseProductName = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName").toString().toUpperCase();
+            for (Database supportedDatabase : Database.values()) {
+                if (databaseProductName.contains(supportedDatabase.name())) database = supportedDatabase;
+            }
+            if (database == Database.POSTGRESQL) copyWriter = new PostgreSQLCopyWriter(dataSource, jdbcTemplate, batchSize);
+            if (database == null) log.warn("Bulk writing of the workload inventory reports not supported on {}", databaseProductName);
+        } catch (MetaDataAccessException e) {
+            log.warn("Bulk writing of the workload inventory reports disabled, database not detected", e);
+        }
+    }
+
+    public boolean isSupported()
+    {
+        return database != null;
+    }
+
+    /**
+     * Assigns the ids to the reports and inserts them, referencing the given analysis
+     */
+    @Transactional
+    public void insert(List<WorkloadInventoryReportModel> workloadInventoryReportModels, Long analysisId)
+    {
+        if (!isSupported()) throw new IllegalStateException("Bulk writing of the workload inventory reports not supported");
+        if (workloadInventoryReportModels.isEmpty()) return;
+
+        long start = System.currentTimeMillis();
+        List<Long> ids = jdbcTemplate.queryForList(database.nextValuesQuery, Long.class, workloadInventoryReportModels.size());
+        for (int i = 0; i < workloadInventoryReportModels.size(); i++) {
+            workloadInventoryReportModels.get(i).setId(ids.get(i));
+        }
+
+        List<Object[]> rows = new ArrayList<>(workloadInventoryReportModels.size());
+        workloadInventoryReportModels.forEach(wir -> rows.add(new Object[] {wir.getId(), analysisId, wir.getProvider(), wir.getDatacenter(), wir.getCluster(),
+                wir.getVmName(), wir.getOsName(), wir.getOsDescription(), wir.getDiskSpace(), wir.getMemory(), wir.getCpuCores(), wir.getComplexity(),
+                wir.getProduct(), wir.getVersion(), wir.getHost_name(), wir.getCreationDate() != null ? new Timestamp(wir.getCreationDate().getTime()) : null,
+                wir.getSsaEnabled(), stringSetConverter.convertToDatabaseColumn(wir.getWorkloads()),
+                stringSetConverter.convertToDatabaseColumn(wir.getRecommendedTargetsIMS()), stringSetConverter.convertToDatabaseColumn(wir.getFlagsIMS())}));
+        write(TABLE, COLUMNS, COLUMN_TYPES, rows);
+
+        log.info("{} workload inventory reports of analysis {} inserted in {} ms", workloadInventoryReportModels.size(), analysisId, System.currentTimeMillis() - start);
+    }
+
+    private void write(String table, String[] columns, int[] columnTypes, List<Object[]> rows)
+    {
+        if (rows.isEmpty()) return;
+
+        if (database == Database.POSTGRESQL) {
+            copyWriter.copy(table, columns, rows);
+        } else {
+            String sql = "insert into " + table + " (" + String.join(", ", columns) + ") values (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+            for (int i = 0; i < rows.size(); i += batchSize) {
+                jdbcTemplate.batchUpdate(sql, rows.subList(i, Math.min(i + batchSize, rows.size())), columnTypes);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+/**
+ * Moves the workloads, recommended targets and flags of the {@link WorkloadInventoryReportModel}s stored by the
+ * previous versions in the element collection tables into the columns encoded by {@link StringSetConverter}.
+ * Every migrated table is renamed with the {@link #MIGRATED_TABLE_SUFFIX} suffix, in the same transaction, not dropped,
+ * so that it's still there to roll back to. It runs at startup, after the schema update, unless disabled with
+ * 'workloadinventoryreport.elementCollections.migrate=false' and on PostgreSQL only since the other supported
+ * databases are in memory ones. Running it again is harmless: the tables already migrated are not found anymore and
+ * only the reports with no encoded value yet are updated.
+ */
+@Component
+@ConditionalOnProperty(name = "workloadinventoryreport.elementCollections.migrate", havingValue = "true", matchIfMissing = true)
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class WorkloadInventoryReportElementCollectionsMigration
+{
+    static final String MIGRATED_TABLE_SUFFIX = "_migrated";
+
+    private static final String[][] ELEMENT_COLLECTIONS = {
+            // table, column, encoded column
+            {"workload_inventory_report_model_workloads", "workloads", "workloads"},
+            {"workload_inventory_report_model_recommended_targetsims", "recommended_targetsims", "recommended_targets_ims"},
+            {"workload_inventory_report_model_flagsims", "flagsims", "flags_ims"}
+    };
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void migrate() throws MetaDataAccessException
+    {
+        String databaseProductName = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName").toString();
+        if (!databaseProductName.toUpperCase().contains("POSTGRESQL")) return;
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String[] elementCollection : ELEMENT_COLLECTIONS) {
+            String table = elementCollection[0];
+            if (!tableExists(table)) continue;
+
+            long start = System.currentTimeMillis();
+            Integer migrated = transactionTemplate.execute(status -> {
+                int updated = jdbcTemplate.update(encodeElementCollectionQuery(table, elementCollection[1], elementCollection[2]));
+                jdbcTemplate.execute("alter table " + table + " rename to " + table + MIGRATED_TABLE_SUFFIX);
+                return updated;
+            });
+            log.info("{} workload inventory reports migrated from {} in {} ms", migrated, table, System.currentTimeMillis() - start);
+        }
+    }
+
+    private boolean tableExists(String table) throws MetaDataAccessException
+    {
+        return (Boolean) JdbcUtils.extractDatabaseMetaData(dataSource, databaseMetaData -> databaseMetaData.getTables(null, null, table, null).next());
+    }
+
+    // same encoding of StringSetConverter: elements sorted by code point, escaped and enclosed by separators
+    private static String encodeElementCollectionQuery(String table, String column, String encodedColumn)
+    {
+        String escapedElement = "replace(replace(" + column + ", '\\', '\\\\'), '|', '\\|')";
+        return "update workload_inventory_report_model wir set " + encodedColumn + " = encoded.elements " +
+                "from (select workload_inventory_report_model_id as id, " +
+                "'|' || string_agg(" + escapedElement + ", '|' order by " + column + " collate \"C\") || '|' as elements " +
+                "from " + table + " where " + column + " is not null group by workload_inventory_report_model_id) encoded " +
+                "where wir.id = encoded.id and wir." + encodedColumn + " is null";
+    }
+}
@@ -0,0 +1,95 @@
+package org.jboss.xavier.integrations.jpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the indexes on expressions used by the filters of {@link WorkloadInventoryReportSpecs}, that can't be
+ * declared on the {@link WorkloadInventoryReportModel} entity:
+ * lower(column) for the case insensitive equality filters and a trigram (pg_trgm) index on lower(vm_name) for the
+ * substring search of the VM names.
+ * They're created in background once the application is ready, on PostgreSQL only: the other supported databases are in
+ * memory ones that keep on filtering with the plain indexes of the entity.
+ * The indexes are built concurrently, i.e. without locking the reports being written, hence outside any transaction.
+ * The pg_trgm extension is not created here: without it, installed by the database administrator, there's no trigram
+ * index.
+ */
+@Component
+@Slf4j
+public class WorkloadInventoryReportFilterIndexes
+{
+    private static final String TABLE = "workload_inventory_report_model";
+    private static final String[] EQUALITY_FILTER_COLUMNS = {"provider", "datacenter", "cluster", "os_name", "complexity"};
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("WorkloadInventoryReportFilterIndexes-"));
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createInBackground()
+    {
+        executorService.execute(() -> {
+            try {
+                create();
+            } catch (MetaDataAccessException | DataAccessException e) {
+                log.error("Indexes of the workload inventory report filters not created", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        executorService.shutdownNow();
+    }
+
+    void create() throws MetaDataAccessException
+    {
+        String databaseProductName = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName").toString();
+        if (!databaseProductName.toUpperCase().contains("POSTGRESQL")) return;
+
+        long start = System.currentTimeMillis();
+        // every filter is applied within the reports of an analysis
+        for (String column : EQUALITY_FILTER_COLUMNS) {
+            createIndexConcurrently("WorkloadInventoryReportModel_lower_" + column + "_index", "(analysis_id, lower(" + column + "))");
+        }
+
+        if (jdbcTemplate.queryForObject("select count(*) from pg_extension where extname = 'pg_trgm'", Integer.class) > 0) {
+            createIndexConcurrently("WorkloadInventoryReportModel_vm_name_trgm_index", "using gin (lower(vm_name) gin_trgm_ops)");
+        } else {
+            log.warn("pg_trgm extension not installed, the substring search of the VM names will scan the reports of the analysis");
+        }
+        log.info("Indexes of the workload inventory report filters available in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void createIndexConcurrently(String name, String definition)
+    {
+        // an interrupted concurrent build leaves an invalid index behind, that "if not exists" would keep forever
+        List<Boolean> valid = jdbcTemplate.queryForList("select i.indisvalid from pg_index i join pg_class c on c.oid = i.indexrelid where c.relname = ?",
+                Boolean.class, name.toLowerCase());
+        if (valid.contains(Boolean.FALSE)) {
+            log.warn("Index {} left invalid by a previous build, creating it again", name);
+            jdbcTemplate.execute("drop index concurrently if exists " + name);
+        }
+        jdbcTemplate.execute("create index concurrently if not exists " + name + " on " + TABLE + " " + definition);
+    }
+}
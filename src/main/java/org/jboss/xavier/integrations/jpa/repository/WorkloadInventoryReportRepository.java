@@ -7,12 +7,14 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-
-import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface WorkloadInventoryReportRepository extends JpaRepository<WorkloadInventoryReportModel, Long>, JpaSpecificationExecutor<WorkloadInventoryReportModel>
@@ -25,40 +27,41 @@ public interface WorkloadInventoryReportRepository extends JpaRepository<Workloa
 
     WorkloadInventoryReportModel findByAnalysisOwnerAndId(String owner, Long id);
 
-    @Query(value = "select distinct wir.provider from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
-    Set<String> findAllDistinctProvidersByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "select distinct wir.cluster from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
-    Set<String> findAllDistinctClustersByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "select distinct wir.datacenter from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
-    Set<String> findAllDistinctDatacentersByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "select distinct wir.complexity from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
-    Set<String> findAllDistinctComplexitiesByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "SELECT DISTINCT workload_inventory_report_model_workloads.workloads " +
-            "FROM workload_inventory_report_model_workloads " +
-            "INNER JOIN workload_inventory_report_model ON workload_inventory_report_model_workloads.workload_inventory_report_model_id = workload_inventory_report_model.id " +
-            "INNER JOIN analysis_model ON workload_inventory_report_model.analysis_id = analysis_model.id " +
-            "WHERE analysis_model.id = :analysisId", nativeQuery = true)
-    Set<String> findAllDistinctWorkloadsByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "SELECT DISTINCT workload_inventory_report_model_recommended_targetsims.recommended_targetsims " +
-            "FROM workload_inventory_report_model_recommended_targetsims " +
-            "INNER JOIN workload_inventory_report_model ON workload_inventory_report_model_recommended_targetsims.workload_inventory_report_model_id = workload_inventory_report_model.id " +
-            "INNER JOIN analysis_model ON workload_inventory_report_model.analysis_id = analysis_model.id " +
-            "WHERE analysis_model.id = :analysisId", nativeQuery = true)
-    Set<String> findAllDistinctRecommendedTargetsIMSByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "SELECT DISTINCT workload_inventory_report_model_flagsims.flagsims " +
-            "FROM workload_inventory_report_model_flagsims " +
-            "INNER JOIN workload_inventory_report_model ON workload_inventory_report_model_flagsims.workload_inventory_report_model_id = workload_inventory_report_model.id " +
-            "INNER JOIN analysis_model ON workload_inventory_report_model.analysis_id = analysis_model.id " +
-            "WHERE analysis_model.id = :analysisId", nativeQuery = true)
-    Set<String> findAllDistinctFlagsIMSByAnalysisId(@Param("analysisId") Long analysisId);
-
-    @Query(value = "select distinct wir.osName from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
-    Set<String> findAllDistinctOsNamesByAnalysisId(@Param("analysisId") Long analysisId);
+    List<WorkloadInventoryReportModel> findByAnalysisOwnerAndIdIn(String owner, Collection<Long> ids);
+
+    // to be consumed within a transaction, fetching the reports from the database a chunk at a time
+    @Query(value = "select wir from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<WorkloadInventoryReportModel> streamByAnalysisId(@Param("analysisId") Long analysisId);
+
+    /**
+     * Rows of facet and distinct value of the available filters, with facet being 0 for the providers, 1 for the clusters,
+     * 2 for the datacenters, 3 for the complexities, 4 for the workloads, 5 for the recommended targets, 6 for the flags
+     * and 7 for the OS names. Workloads, recommended targets and flags are encoded by StringSetConverter.
+     */
+    @Query(value = "select 0 as facet, provider as facet_value from workload_inventory_report_model where analysis_id = :analysisId group by provider " +
+            "union all " +
+            "select 1 as facet, cluster as facet_value from workload_inventory_report_model where analysis_id = :analysisId group by cluster " +
+            "union all " +
+            "select 2 as facet, datacenter as facet_value from workload_inventory_report_model where analysis_id = :analysisId group by datacenter " +
+            "union all " +
+            "select 3 as facet, complexity as facet_value from workload_inventory_report_model where analysis_id = :analysisId group by complexity " +
+            "union all " +
+            "select 4 as facet, workloads as facet_value from workload_inventory_report_model where analysis_id = :analysisId and workloads is not null group by workloads " +
+            "union all " +
+            "select 5 as facet, recommended_targets_ims as facet_value from workload_inventory_report_model where analysis_id = :analysisId and recommended_targets_ims is not null group by recommended_targets_ims " +
+            "union all " +
+            "select 6 as facet, flags_ims as facet_value from workload_inventory_report_model where analysis_id = :analysisId and flags_ims is not null group by flags_ims " +
+            "union all " +
+            "select 7 as facet, os_name as facet_value from workload_inventory_report_model where analysis_id = :analysisId group by os_name ", nativeQuery = true)
+    List<Object[]> findAllDistinctFilterValuesByAnalysisId(@Param("analysisId") Long analysisId);
+
+    // rows of id, cluster, OS name and encoded workloads
+    @Query(value = "select wir.id, wir.cluster, wir.osName, wir.encodedWorkloads from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId and wir.encodedWorkloads is not null")
+    List<Object[]> findEncodedWorkloadsByAnalysisId(@Param("analysisId") Long analysisId);
+
+    // rows of id, cluster, OS name and encoded flags
+    @Query(value = "select wir.id, wir.cluster, wir.osName, wir.encodedFlagsIMS from WorkloadInventoryReportModel wir where wir.analysis.id = :analysisId and wir.encodedFlagsIMS is not null")
+    List<Object[]> findEncodedFlagsIMSByAnalysisId(@Param("analysisId") Long analysisId);
 
 }
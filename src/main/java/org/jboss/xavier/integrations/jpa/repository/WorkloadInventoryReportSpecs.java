@@ -1,30 +1,43 @@
 package org.jboss.xavier.integrations.jpa.repository;
 
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
 import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
+import org.jboss.xavier.integrations.route.model.WorkloadInventoryReportCursor;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.domain.Specifications;
 
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class WorkloadInventoryReportSpecs {
 
+    private static final char LIKE_ESCAPE = '!';
+
     private WorkloadInventoryReportSpecs() {
         // TODO declared private constructor because this should contains just static methods
     }
 
+    private static String escapeLikePattern(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * @param attributeName the attribute of a set encoded by {@link StringSetConverter}
+     */
     public static Specification<WorkloadInventoryReportModel> getIsMemberSpecification(String attributeName, Set<String> values) {
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             values.forEach(val -> {
-                Expression<Collection<String>> expression = root.get(attributeName);
-                Predicate predicate = cb.isMember(val.trim(), expression);
+                Expression<String> expression = root.get(attributeName);
+                String element = StringSetConverter.SEPARATOR + StringSetConverter.encodeElement(val.trim()) + StringSetConverter.SEPARATOR;
+                Predicate predicate = cb.like(expression, "%" + escapeLikePattern(element) + "%", LIKE_ESCAPE);
                 predicates.add(predicate);
             });
 
@@ -32,27 +45,30 @@ public class WorkloadInventoryReportSpecs {
         };
     }
 
+    /**
+     * Case insensitive match of any of the values as lower(attribute) in (values), the expression
+     * of the indexes created by {@link WorkloadInventoryReportFilterIndexes}
+     */
     public static Specification<WorkloadInventoryReportModel> getEqualSpecification(String attributeName, Set<String> values) {
         return (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            values.forEach(val -> {
-                Expression<String> expression = root.get(attributeName);
-                Predicate predicate = cb.equal(cb.lower(expression), val.trim().toLowerCase());
-                predicates.add(predicate);
-            });
-
-            return cb.or(predicates.stream().toArray(Predicate[]::new));
+            Expression<String> expression = root.get(attributeName);
+            Set<String> lowerCaseValues = values.stream().map(val -> val.trim().toLowerCase()).collect(Collectors.toSet());
+            return cb.lower(expression).in(lowerCaseValues);
         };
     }
 
+    /**
+     * Case insensitive substring match of any of the values as lower(attribute) like '%value%', with the wildcards
+     * within the value escaped, backed by the trigram index created by {@link WorkloadInventoryReportFilterIndexes}
+     * for the VM name
+     */
     public static Specification<WorkloadInventoryReportModel> getLikeSpecification(String attributeName, Set<String> values) {
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             values.forEach(val -> {
                 Expression<String> expression = root.get(attributeName);
-                Predicate predicate = cb.like(cb.lower(expression), "%" + val.trim().toLowerCase() + "%");
+                Predicate predicate = cb.like(cb.lower(expression), "%" + escapeLikePattern(val.trim().toLowerCase()) + "%", LIKE_ESCAPE);
                 predicates.add(predicate);
             });
 
@@ -60,6 +76,50 @@ public class WorkloadInventoryReportSpecs {
         };
     }
 
+    /**
+     * Selects the reports following the cursor in the order of {@link #getCursorOrders(Root, CriteriaBuilder, boolean)},
+     * i.e. (provider, datacenter, cluster, vmName, id) > (cursor values) expanded as a chain of "or" conditions.
+     *
+     * @param nullsSortedHigh whether the database sorts the null values after all the others in ascending order
+     */
+    public static Specification<WorkloadInventoryReportModel> getAfterCursorSpecification(WorkloadInventoryReportCursor cursor, boolean asc, boolean nullsSortedHigh) {
+        return (root, query, cb) -> {
+            boolean nullsLast = asc == nullsSortedHigh;
+            List<Expression<String>> keys = getCursorKeys(root);
+            Expression<Long> id = root.get("id");
+            Predicate after = asc ? cb.greaterThan(id, cursor.getId()) : cb.lessThan(id, cursor.getId());
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                Expression<String> key = keys.get(i);
+                String value = cursor.getValues().get(i);
+                if (value == null) {
+                    Predicate sameKey = cb.and(cb.isNull(key), after);
+                    after = nullsLast ? sameKey : cb.or(cb.isNotNull(key), sameKey);
+                } else {
+                    Predicate sameKey = cb.and(cb.equal(key, value), after);
+                    Predicate nextKey = asc ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+                    after = nullsLast ? cb.or(nextKey, cb.isNull(key), sameKey) : cb.or(nextKey, sameKey);
+                }
+            }
+            return after;
+        };
+    }
+
+    public static List<Order> getCursorOrders(Root<WorkloadInventoryReportModel> root, CriteriaBuilder cb, boolean asc) {
+        List<Order> orders = new ArrayList<>();
+        getCursorKeys(root).forEach(key -> orders.add(asc ? cb.asc(key) : cb.desc(key)));
+        orders.add(asc ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+        return orders;
+    }
+
+    private static List<Expression<String>> getCursorKeys(Root<WorkloadInventoryReportModel> root) {
+        List<Expression<String>> keys = new ArrayList<>();
+        for (String attributeName : Arrays.asList(WorkloadInventoryReportModel.PROVIDER_FIELD, WorkloadInventoryReportModel.DATACENTER_FIELD,
+                WorkloadInventoryReportModel.CLUSTER_FIELD, WorkloadInventoryReportModel.VM_NAME_FIELD)) {
+            keys.add(root.get(attributeName));
+        }
+        return keys;
+    }
+
     public static Specification<WorkloadInventoryReportModel> getByAnalysisOwnerAndAnalysisIdAndFilterBean(String analysisOwner, Long analysisId, WorkloadInventoryFilterBean filterBean) {
         List<Specification<WorkloadInventoryReportModel>> specifications = new ArrayList<>();
 
@@ -101,15 +161,15 @@ public class WorkloadInventoryReportSpecs {
         }
 
         if (filterBean.getWorkloads() != null && !filterBean.getWorkloads().isEmpty()) {
-            specifications.add(getIsMemberSpecification("workloads", filterBean.getWorkloads()));
+            specifications.add(getIsMemberSpecification(WorkloadInventoryReportModel.ENCODED_WORKLOADS_FIELD, filterBean.getWorkloads()));
         }
 
         if (filterBean.getRecommendedTargetsIMS() != null && !filterBean.getRecommendedTargetsIMS().isEmpty()) {
-            specifications.add(getIsMemberSpecification("recommendedTargetsIMS", filterBean.getRecommendedTargetsIMS()));
+            specifications.add(getIsMemberSpecification(WorkloadInventoryReportModel.ENCODED_RECOMMENDED_TARGETS_IMS_FIELD, filterBean.getRecommendedTargetsIMS()));
         }
 
         if (filterBean.getFlagsIMS() != null && !filterBean.getFlagsIMS().isEmpty()) {
-            specifications.add(getIsMemberSpecification("flagsIMS", filterBean.getFlagsIMS()));
+            specifications.add(getIsMemberSpecification(WorkloadInventoryReportModel.ENCODED_FLAGS_IMS_FIELD, filterBean.getFlagsIMS()));
         }
 
         // union of specifications
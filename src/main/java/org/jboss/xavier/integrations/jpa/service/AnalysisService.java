@@ -6,6 +6,7 @@ import org.jboss.xavier.analytics.pojo.output.InitialSavingsEstimationReportMode
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
 import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
 import org.jboss.xavier.integrations.jpa.repository.AnalysisRepository;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportBulkWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -28,6 +29,15 @@ public class AnalysisService
     @Autowired
     AnalysisRepository analysisRepository;
 
+    @Autowired
+    WorkloadInventoryReportBulkWriter workloadInventoryReportBulkWriter;
+
+    @Autowired
+    WorkloadInventoryReportService workloadInventoryReportService;
+
+    @Autowired
+    ReportSnapshotService reportSnapshotService;
+
     // WARNING: BE CAREFUL
     // think about changing this "private" modifier
     // every time you "find" a report it should check that the
@@ -45,6 +55,8 @@ public class AnalysisService
     public void deleteById(Long id)
     {
         analysisRepository.delete(id);
+        reportSnapshotService.deleteByAnalysisId(id);
+        workloadInventoryReportService.evictCachedReports(id);
     }
 
     public AnalysisModel buildAndSave(String reportName, String reportDescription, String payloadName, String owner) {
@@ -62,12 +74,22 @@ public class AnalysisService
     public void setInitialSavingsEstimationReportModel(InitialSavingsEstimationReportModel reportModel, Long id) {
         AnalysisModel analysisModel = findById(id);
         analysisModel.setInitialSavingsEstimationReportModel(reportModel);
+        analysisModel.setLastUpdate(new Date());
         analysisRepository.save(analysisModel);
     }
 
     public void addWorkloadInventoryReportModels(List<WorkloadInventoryReportModel> reportModels, Long id) {
         AnalysisModel analysisModel = findById(id);
+        if (workloadInventoryReportBulkWriter.isSupported()) {
+            // thousands of reports are inserted far faster without cascading the analysis' save to each of them
+            reportModels.forEach(reportModel -> reportModel.setAnalysis(analysisModel));
+            workloadInventoryReportBulkWriter.insert(reportModels, analysisModel.getId());
+            // the analysis isn't saved so its last update, which versions it and its reports, is updated on its own
+            analysisRepository.updateLastUpdate(id, new Date());
+            return;
+        }
         analysisModel.setWorkloadInventoryReportModels(reportModels);
+        analysisModel.setLastUpdate(new Date());
         analysisRepository.save(analysisModel);
     }
 
@@ -75,6 +97,7 @@ public class AnalysisService
         AnalysisModel analysisModel = findById(id);
         analysisModel.setWorkloadSummaryReportModels(reportModel);
         reportModel.setAnalysis(analysisModel);
+        analysisModel.setLastUpdate(new Date());
         analysisRepository.save(analysisModel);
     }
 
@@ -82,12 +105,10 @@ public class AnalysisService
         AnalysisModel analysisModel = findById(id);
         analysisModel.setWorkloadSummaryReportModels(reportModel);
         reportModel.setAnalysis(analysisModel);
-        // TODO remove this since it's just a temporary workaround to change the status
-        if (!STATUS.FAILED.toString().equalsIgnoreCase(analysisModel.getStatus())) {
-            analysisModel.setStatus(STATUS.CREATED.toString());
-        }
         analysisModel.setLastUpdate(new Date());
         analysisRepository.save(analysisModel);
+        // TODO remove this since it's just a temporary workaround to change the status
+        analysisRepository.updateStatusIfCurrentStatusNot(id, STATUS.CREATED.toString(), STATUS.FAILED.toString(), new Date());
     }
 
     public Page<AnalysisModel> findAllByOwner(String owner, int page, int size)
@@ -108,10 +129,7 @@ public class AnalysisService
     }
 
     public void updateStatus(String status, Long id) {
-        AnalysisModel analysisModel = findById(id);
-        analysisModel.setStatus(status);
-        analysisModel.setLastUpdate(new Date());
-        analysisRepository.save(analysisModel);
+        analysisRepository.updateStatus(id, status, new Date());
     }
 
     public List<AdministrationMetricsProjection> getAdministrationMetrics(Date fromDate, Date toDate)
@@ -120,19 +138,11 @@ public class AnalysisService
     }
 
     public void updatePayloadStorageId(String payloadStorageId, Long id) {
-        AnalysisModel analysisModel = findById(id);
-        analysisModel.setPayloadStorageId(payloadStorageId);
-        analysisModel.setLastUpdate(new Date());
-        analysisRepository.save(analysisModel);
+        analysisRepository.updatePayloadStorageId(id, payloadStorageId, new Date());
     }
 
     public void markAsFailedIfNotCreated(Long id) {
-        AnalysisModel analysisModel = findByIdAndStatusIgnoreCaseNot(id, STATUS.CREATED.toString());
-        if (analysisModel != null) {
-            analysisModel.setStatus(STATUS.FAILED.toString());
-            analysisModel.setLastUpdate(new Date());
-            analysisRepository.save(analysisModel);
-        }
+        analysisRepository.updateStatusIfCurrentStatusNot(id, STATUS.FAILED.toString(), STATUS.CREATED.toString(), new Date());
     }
 
     public AnalysisModel findByIdAndStatusIgnoreCaseNot(Long id, String status) {
@@ -0,0 +1,82 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.integrations.jpa.repository.AnalysisRepository;
+import org.jboss.xavier.integrations.route.model.CacheValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Validators of the resources of the /report REST API computed only from the analyses, i.e. before any report is read:
+ * every change to an analysis updates its last update so that, along with its id and status, it versions the analysis
+ * and all of its reports. The reports of a created analysis never change again so they can be cached by the clients.
+ */
+@Component
+public class CacheValidatorService
+{
+    private static final String REPORT_PATH = "/report";
+    private static final String REVALIDATE = "private, no-cache";
+    // the download link expires so it can't be cached even if the analysis has been created
+    private static final List<String> NOT_CACHEABLE_RESOURCES = Arrays.asList("payload-link");
+
+    @Autowired
+    AnalysisRepository analysisRepository;
+
+    @Value("${report.cache.maxAge:86400}")
+    private long maxAge;
+
+    /**
+     * @param path the path of the request, relative to the REST API
+     * @param query the query of the request, the same resource with a different query is a different representation
+     * @return null if the resource can't be validated
+     */
+    public CacheValidator findByOwnerAndPath(String owner, String path, String query)
+    {
+        if (owner == null || path == null) return null;
+        if (!path.equals(REPORT_PATH) && !path.startsWith(REPORT_PATH + "/")) return null;
+
+        String[] segments = path.substring(REPORT_PATH.length()).split("/");
+        // "/report" and "/report/" list the analyses
+        if (segments.length < 2) {
+            List<Object[]> version = analysisRepository.findVersionByOwner(owner);
+            if (version.isEmpty()) return null;
+            Object[] values = version.get(0);
+            return new CacheValidator(eTag("analyses", values[0], values[1], toTime((Date) values[2]), query), REVALIDATE);
+        }
+
+        Long id;
+        try {
+            id = Long.valueOf(segments[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        AnalysisModel analysisModel = analysisRepository.findByOwnerAndId(owner, id);
+        if (analysisModel == null) return null;
+
+        String eTag = eTag("analysis", analysisModel.getId(), toTime(analysisModel.getLastUpdate()), analysisModel.getStatus(), path, query);
+        if (segments.length == 2) return new CacheValidator(eTag, REVALIDATE);
+
+        // the reports are complete, hence immutable, only once the analysis has been created
+        if (!AnalysisService.STATUS.CREATED.toString().equalsIgnoreCase(analysisModel.getStatus())) return null;
+        if (NOT_CACHEABLE_RESOURCES.contains(segments[2])) return null;
+        return new CacheValidator(eTag, "private, max-age=" + maxAge + ", immutable");
+    }
+
+    private static Long toTime(Date date)
+    {
+        return date != null ? date.getTime() : null;
+    }
+
+    private static String eTag(Object... values)
+    {
+        String version = Arrays.toString(values);
+        return "\"" + DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,73 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Groups the workload inventory reports by every element of a set encoded by {@link StringSetConverter} and by OS name,
+ * counting the distinct (not null) clusters and VMs of each group.
+ * PostgreSQL splits the encoded columns itself so its summaries are queried and ordered in the database: this class
+ * serves the in memory databases, which have no such function and whose strings order is the natural one of Java.
+ */
+final class EncodedSetSummary
+{
+    interface SummaryModelFactory<T>
+    {
+        T create(String element, String osName, Integer clusters, Integer vms);
+    }
+
+    private final Map<List<String>, Set<Long>> vmsByGroup = new LinkedHashMap<>();
+    private final Map<List<String>, Set<String>> clustersByGroup = new LinkedHashMap<>();
+
+    static boolean isCalculatedByDatabase(DataSource dataSource) throws MetaDataAccessException
+    {
+        return JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName").toString().toUpperCase().contains("POSTGRESQL");
+    }
+
+    /**
+     * @param rows the id, cluster, OS name and encoded set of every workload inventory report
+     */
+    static <T> List<T> calculate(List<Object[]> rows, SummaryModelFactory<T> summaryModelFactory, Comparator<T> order)
+    {
+        EncodedSetSummary encodedSetSummary = new EncodedSetSummary();
+        for (Object[] row : rows) {
+            encodedSetSummary.add(((Number) row[0]).longValue(), (String) row[1], (String) row[2], StringSetConverter.decode((String) row[3]));
+        }
+        return encodedSetSummary.build(summaryModelFactory, order);
+    }
+
+    /**
+     * Adds a workload inventory report to the groups of the elements of its (decoded) set
+     */
+    void add(Long id, String cluster, String osName, Collection<String> elements)
+    {
+        if (elements == null) return;
+        for (String element : elements) {
+            List<String> group = Arrays.asList(element, osName);
+            vmsByGroup.computeIfAbsent(group, key -> new HashSet<>()).add(id);
+            Set<String> clusters = clustersByGroup.computeIfAbsent(group, key -> new HashSet<>());
+            if (cluster != null) clusters.add(cluster);
+        }
+    }
+
+    <T> List<T> build(SummaryModelFactory<T> summaryModelFactory, Comparator<T> order)
+    {
+        return vmsByGroup.entrySet().stream()
+                .map(entry -> summaryModelFactory.create(entry.getKey().get(0), entry.getKey().get(1),
+                        clustersByGroup.get(entry.getKey()).size(), entry.getValue().size()))
+                .sorted(order)
+                .collect(Collectors.toList());
+    }
+}
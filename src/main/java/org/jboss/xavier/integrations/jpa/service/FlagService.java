@@ -2,6 +2,7 @@ package org.jboss.xavier.integrations.jpa.service;
 
 import org.jboss.xavier.analytics.pojo.output.workload.summary.FlagModel;
 import org.jboss.xavier.integrations.jpa.repository.FlagRepository;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
 import org.jboss.xavier.integrations.route.model.PageBean;
 import org.jboss.xavier.integrations.route.model.SortBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,19 +10,48 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.Comparator;
 import java.util.List;
 
 @Component
 public class FlagService
 {
+    static final Comparator<FlagModel> FLAG_MODELS_ORDER = getFlagModelsOrder(Comparator.naturalOrder());
+
     @Autowired
     FlagRepository flagRepository;
 
+    @Autowired
+    WorkloadInventoryReportRepository workloadInventoryReportRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    private boolean calculatedByDatabase;
+
+    @PostConstruct
+    public void init() throws MetaDataAccessException
+    {
+        calculatedByDatabase = EncodedSetSummary.isCalculatedByDatabase(dataSource);
+    }
+
+    // "order by vms desc, flag, osName" of the named query
+    static Comparator<FlagModel> getFlagModelsOrder(Comparator<String> textOrder)
+    {
+        return Comparator.comparing(FlagModel::getVms, Comparator.reverseOrder())
+                .thenComparing(FlagModel::getFlag, Comparator.nullsLast(textOrder))
+                .thenComparing(FlagModel::getOsName, Comparator.nullsLast(textOrder));
+    }
+
     public List<FlagModel> calculateFlagModels(Long analysisId)
     {
-        return flagRepository.calculateFlagModels(analysisId);
+        if (calculatedByDatabase) return flagRepository.calculateFlagModels(analysisId);
+        return EncodedSetSummary.calculate(workloadInventoryReportRepository.findEncodedFlagsIMSByAnalysisId(analysisId), FlagModel::new, FLAG_MODELS_ORDER);
     }
 
     public Page<FlagModel> findByReportAnalysisOwnerAndReportAnalysisId(String analysisOwner, Long analysisId, PageBean pageBean, SortBean sortBean)
@@ -0,0 +1,141 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.ReportSnapshotModel;
+import org.jboss.xavier.integrations.jpa.repository.AnalysisRepository;
+import org.jboss.xavier.integrations.jpa.repository.ReportSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshots of the reports which never change once the analysis has been created: the JSON document of every report
+ * is stored, compressed, the first time it's requested and then served as it is, with an entity tag of its content.
+ * The reports of the analyses still in progress are read from their entities every time.
+ * Every snapshot records the last update of the analysis it has been read at and it's discarded as soon as the analysis
+ * changes again, e.g. when its reports are calculated again, so that a stale document is never served.
+ */
+@Slf4j
+@Component
+public class ReportSnapshotService
+{
+    @Autowired
+    ReportSnapshotRepository reportSnapshotRepository;
+
+    @Autowired
+    AnalysisRepository analysisRepository;
+
+    @Autowired
+    InitialSavingsEstimationReportService initialSavingsEstimationReportService;
+
+    @Autowired
+    WorkloadSummaryReportService workloadSummaryReportService;
+
+    @Value("${reportsnapshot.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * @return null if the report has not been snapshotted or if its snapshot is stale, in which case it's deleted
+     */
+    public ReportSnapshotModel findByAnalysisOwnerAndAnalysisIdAndReportType(String owner, Long analysisId, ReportSnapshotModel.ReportType reportType)
+    {
+        if (!enabled) return null;
+        ReportSnapshotModel reportSnapshotModel = reportSnapshotRepository.findByOwnerAndAnalysisIdAndReportType(owner, analysisId, reportType);
+        if (reportSnapshotModel == null) return null;
+
+        Date analysisLastUpdate = findCreatedAnalysisLastUpdate(owner, analysisId);
+        if (analysisLastUpdate != null && analysisLastUpdate.getTime() == reportSnapshotModel.getAnalysisLastUpdate().getTime()) {
+            return reportSnapshotModel;
+        }
+        log.debug("Snapshot of the {} report of analysis {} is stale", reportType, analysisId);
+        reportSnapshotRepository.deleteSnapshot(reportSnapshotModel.getId());
+        return null;
+    }
+
+    /**
+     * To be read before the report, so that a change to the analysis while the report is read makes its snapshot stale
+     *
+     * @return the last update of the analysis if it has been created, null otherwise
+     */
+    public Date findCreatedAnalysisLastUpdate(String owner, Long analysisId)
+    {
+        AnalysisModel analysisModel = analysisRepository.findByOwnerAndId(owner, analysisId);
+        if (analysisModel == null || !AnalysisService.STATUS.CREATED.toString().equalsIgnoreCase(analysisModel.getStatus())) {
+            return null;
+        }
+        return analysisModel.getLastUpdate();
+    }
+
+    /**
+     * @return the report read from its entities, null if it doesn't exist
+     */
+    public Object findReportByAnalysisOwnerAndAnalysisIdAndReportType(String owner, Long analysisId, ReportSnapshotModel.ReportType reportType)
+    {
+        switch (reportType) {
+            case INITIAL_SAVINGS_ESTIMATION:
+                return initialSavingsEstimationReportService.findByAnalysisOwnerAndAnalysisId(owner, analysisId);
+            case WORKLOAD_SUMMARY:
+                return workloadSummaryReportService.findByAnalysisOwnerAndAnalysisId(owner, analysisId);
+            default:
+                throw new IllegalArgumentException("Unsupported report type " + reportType);
+        }
+    }
+
+    /**
+     * Takes the snapshot of the JSON document of a report, storing it only if the analysis had been created
+     * when the report was read
+     *
+     * @param analysisLastUpdate the last update of the created analysis read before the report, null if it was in progress
+     * @return the snapshot, stored or not
+     */
+    public ReportSnapshotModel snapshot(String owner, Long analysisId, ReportSnapshotModel.ReportType reportType, Date analysisLastUpdate, byte[] json)
+    {
+        String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        ReportSnapshotModel reportSnapshotModel = new ReportSnapshotModel(analysisId, owner, reportType, etag, analysisLastUpdate, compress(json));
+        if (!enabled || analysisLastUpdate == null) return reportSnapshotModel;
+
+        try {
+            return reportSnapshotRepository.saveAndFlush(reportSnapshotModel);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request has already stored the document, stale or not it's checked when it's found
+            log.debug("Snapshot of the {} report of analysis {} already stored", reportType, analysisId);
+            return reportSnapshotModel;
+        }
+    }
+
+    /**
+     * @return the uncompressed JSON document
+     */
+    public InputStream openContent(ReportSnapshotModel reportSnapshotModel) throws IOException
+    {
+        return new GZIPInputStream(new ByteArrayInputStream(reportSnapshotModel.getContent()));
+    }
+
+    public void deleteByAnalysisId(Long analysisId)
+    {
+        reportSnapshotRepository.deleteByAnalysisId(analysisId);
+    }
+
+    private static byte[] compress(byte[] content)
+    {
+        ByteArrayOutputStream compressedContent = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedContent)) {
+            gzipOutputStream.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressedContent.toByteArray();
+    }
+}
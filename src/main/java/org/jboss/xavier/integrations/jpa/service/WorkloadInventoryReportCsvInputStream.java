@@ -0,0 +1,99 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.hibernate.ScrollableResults;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.route.dataformat.CsvRecordFormatter;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV of the workload inventory reports read from a forward only cursor: every report is formatted once it's been
+ * fetched and then detached, so that only the current line is held in memory whatever the number of reports.
+ * The cursor, its transaction and the entity manager it belongs to are closed at the end of the reports or along
+ * with the stream, whichever comes first.
+ */
+final class WorkloadInventoryReportCsvInputStream extends InputStream
+{
+    private final EntityManager entityManager;
+    private final ScrollableResults results;
+    private final CsvRecordFormatter<WorkloadInventoryReportModel> csvRecordFormatter;
+    private byte[] line;
+    private int position;
+    private boolean closed;
+
+    WorkloadInventoryReportCsvInputStream(EntityManager entityManager, ScrollableResults results, CsvRecordFormatter<WorkloadInventoryReportModel> csvRecordFormatter)
+    {
+        this.entityManager = entityManager;
+        this.results = results;
+        this.csvRecordFormatter = csvRecordFormatter;
+        this.line = csvRecordFormatter.formatHeader().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!nextLine()) return -1;
+        return line[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0) return 0;
+
+        int count = 0;
+        while (count < len && nextLine()) {
+            int length = Math.min(len - count, line.length - position);
+            System.arraycopy(line, position, b, off + count, length);
+            position += length;
+            count += length;
+        }
+        return count > 0 ? count : -1;
+    }
+
+    /**
+     * Moves to the next line once the current one has been read
+     *
+     * @return false at the end of the reports
+     */
+    private boolean nextLine() throws IOException
+    {
+        while (position == line.length) {
+            if (closed) return false;
+            try {
+                if (!results.next()) {
+                    close();
+                    return false;
+                }
+                WorkloadInventoryReportModel workloadInventoryReportModel = (WorkloadInventoryReportModel) results.get(0);
+                line = csvRecordFormatter.format(workloadInventoryReportModel).getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                entityManager.detach(workloadInventoryReportModel);
+            } catch (RuntimeException e) {
+                close();
+                throw new IOException("Unable to read the workload inventory reports", e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) return;
+        closed = true;
+        try {
+            results.close();
+        } finally {
+            try {
+                // nothing has been written, the read only transaction is just ended
+                if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+            } finally {
+                entityManager.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In memory columnar index of the workload inventory reports of an analysis: a bitmap of the reports for every value
+ * of every facet, the lower case VM names and, built on first use, the order of the reports for every sort field.
+ * It answers the filter, count and page requests with the same semantics as {@link org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportSpecs}:
+ * any of the values within a facet, all the facets together.
+ * The reports must not change once indexed, i.e. it's meant for the created analyses.
+ */
+final class WorkloadInventoryReportFacetIndex
+{
+    enum Facet
+    {
+        PROVIDERS("providers", "provider", false, wir -> Collections.singleton(wir.getProvider()), WorkloadInventoryFilterBean::getProviders, WorkloadInventoryFilterBean::setProviders),
+        DATACENTERS("datacenters", "datacenter", false, wir -> Collections.singleton(wir.getDatacenter()), WorkloadInventoryFilterBean::getDatacenters, WorkloadInventoryFilterBean::setDatacenters),
+        CLUSTERS("clusters", "cluster", false, wir -> Collections.singleton(wir.getCluster()), WorkloadInventoryFilterBean::getClusters, WorkloadInventoryFilterBean::setClusters),
+        OS_NAMES("osNames", "osName", false, wir -> Collections.singleton(wir.getOsName()), WorkloadInventoryFilterBean::getOsNames, WorkloadInventoryFilterBean::setOsNames),
+        COMPLEXITIES("complexities", "complexity", false, wir -> Collections.singleton(wir.getComplexity()), WorkloadInventoryFilterBean::getComplexities, WorkloadInventoryFilterBean::setComplexities),
+        WORKLOADS("workloads", "encodedWorkloads", true, WorkloadInventoryReportModel::getWorkloads, WorkloadInventoryFilterBean::getWorkloads, WorkloadInventoryFilterBean::setWorkloads),
+        RECOMMENDED_TARGETS_IMS("recommendedTargetsIMS", "encodedRecommendedTargetsIMS", true, WorkloadInventoryReportModel::getRecommendedTargetsIMS, WorkloadInventoryFilterBean::getRecommendedTargetsIMS, WorkloadInventoryFilterBean::setRecommendedTargetsIMS),
+        FLAGS_IMS("flagsIMS", "encodedFlagsIMS", true, WorkloadInventoryReportModel::getFlagsIMS, WorkloadInventoryFilterBean::getFlagsIMS, WorkloadInventoryFilterBean::setFlagsIMS);
+
+        private final String filterName;
+        // entity attribute of the values, encoded by StringSetConverter for the set ones
+        private final String attributeName;
+        // equality filters are case insensitive while the set ones match the exact element
+        private final boolean set;
+        private final Function<WorkloadInventoryReportModel, Collection<String>> reportValues;
+        private final Function<WorkloadInventoryFilterBean, Set<String>> filterValues;
+        private final BiConsumer<WorkloadInventoryFilterBean, Set<String>> filterValuesSetter;
+
+        Facet(String filterName, String attributeName, boolean set, Function<WorkloadInventoryReportModel, Collection<String>> reportValues,
+              Function<WorkloadInventoryFilterBean, Set<String>> filterValues, BiConsumer<WorkloadInventoryFilterBean, Set<String>> filterValuesSetter)
+        {
+            this.filterName = filterName;
+            this.attributeName = attributeName;
+            this.set = set;
+            this.reportValues = reportValues;
+            this.filterValues = filterValues;
+            this.filterValuesSetter = filterValuesSetter;
+        }
+
+        String getFilterName()
+        {
+            return filterName;
+        }
+
+        String getAttributeName()
+        {
+            return attributeName;
+        }
+
+        boolean isSet()
+        {
+            return set;
+        }
+
+        String normalize(String value)
+        {
+            return set ? value : value.toLowerCase();
+        }
+
+        /**
+         * @return a copy of the filter without the values of this facet, to count them
+         */
+        WorkloadInventoryFilterBean withoutFilter(WorkloadInventoryFilterBean filterBean)
+        {
+            WorkloadInventoryFilterBean otherFacetsFilterBean = new WorkloadInventoryFilterBean();
+            otherFacetsFilterBean.setVmNames(filterBean.getVmNames());
+            for (Facet facet : values()) {
+                if (facet != this) facet.filterValuesSetter.accept(otherFacetsFilterBean, facet.filterValues.apply(filterBean));
+            }
+            return otherFacetsFilterBean;
+        }
+    }
+
+    // only the fields ordered the same way by the database and by Java: the text ones follow the collation of the
+    // database so they're always sorted by the database
+    private static final Map<String, Function<WorkloadInventoryReportModel, Comparable>> SORT_KEYS = new HashMap<>();
+
+    static {
+        SORT_KEYS.put("id", WorkloadInventoryReportModel::getId);
+        SORT_KEYS.put("diskSpace", WorkloadInventoryReportModel::getDiskSpace);
+        SORT_KEYS.put("memory", WorkloadInventoryReportModel::getMemory);
+        SORT_KEYS.put("cpuCores", WorkloadInventoryReportModel::getCpuCores);
+        SORT_KEYS.put("creationDate", WorkloadInventoryReportModel::getCreationDate);
+        SORT_KEYS.put("ssaEnabled", WorkloadInventoryReportModel::getSsaEnabled);
+    }
+
+    private final String owner;
+    private final boolean nullsSortedHigh;
+    private final WorkloadInventoryReportModel[] reports;
+    private final String[] lowerCaseVmNames;
+    private final Map<Facet, Map<String, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+    private final Map<String, int[]> sortedReports = new ConcurrentHashMap<>();
+
+    /**
+     * @param nullsSortedHigh whether the null values follow all the others in ascending order, as in the database
+     */
+    WorkloadInventoryReportFacetIndex(String owner, List<WorkloadInventoryReportModel> workloadInventoryReportModels, boolean nullsSortedHigh)
+    {
+        this.owner = owner;
+        this.nullsSortedHigh = nullsSortedHigh;
+        this.reports = workloadInventoryReportModels.stream()
+                .sorted(Comparator.comparing(WorkloadInventoryReportModel::getId))
+                .toArray(WorkloadInventoryReportModel[]::new);
+        this.lowerCaseVmNames = new String[reports.length];
+
+        for (Facet facet : Facet.values()) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+        for (int i = 0; i < reports.length; i++) {
+            lowerCaseVmNames[i] = reports[i].getVmName() != null ? reports[i].getVmName().toLowerCase() : null;
+            for (Facet facet : Facet.values()) {
+                Collection<String> values = facet.reportValues.apply(reports[i]);
+                if (values == null) continue;
+                for (String value : values) {
+                    bitmaps.get(facet).computeIfAbsent(value, key -> new BitSet(reports.length)).set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param orderBy null for the default sort, by provider, datacenter, cluster and VM name
+     */
+    static boolean isSortable(String orderBy)
+    {
+        return orderBy != null && SORT_KEYS.containsKey(orderBy);
+    }
+
+    String getOwner()
+    {
+        return owner;
+    }
+
+    int size()
+    {
+        return reports.length;
+    }
+
+    /**
+     * @return the reports matching the filter, all of them with an empty one
+     */
+    BitSet match(WorkloadInventoryFilterBean filterBean)
+    {
+        BitSet matches = matchVmNames(filterBean.getVmNames());
+        for (Facet facet : Facet.values()) {
+            BitSet facetMatches = match(facet, facet.filterValues.apply(filterBean));
+            if (facetMatches != null) matches.and(facetMatches);
+        }
+        return matches;
+    }
+
+    /**
+     * Number of reports matching every value of every facet under the filter, where the values of a facet
+     * are counted disregarding the filter on the facet itself so that they can be added to it
+     */
+    Map<String, Map<String, Long>> countFacets(WorkloadInventoryFilterBean filterBean)
+    {
+        BitSet vmNameMatches = matchVmNames(filterBean.getVmNames());
+        Map<Facet, BitSet> facetMatches = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            BitSet matches = match(facet, facet.filterValues.apply(filterBean));
+            if (matches != null) facetMatches.put(facet, matches);
+        }
+
+        Map<String, Map<String, Long>> facetCounts = new LinkedHashMap<>();
+        for (Facet facet : Facet.values()) {
+            BitSet otherFacetsMatches = (BitSet) vmNameMatches.clone();
+            facetMatches.forEach((otherFacet, matches) -> {
+                if (otherFacet != facet) otherFacetsMatches.and(matches);
+            });
+
+            // null values can't be filtered, hence they're not counted, neither are the values without any match
+            Map<String, Long> valueCounts = new TreeMap<>();
+            bitmaps.get(facet).forEach((value, valueReports) -> {
+                if (value == null) return;
+                BitSet matches = (BitSet) valueReports.clone();
+                matches.and(otherFacetsMatches);
+                if (!matches.isEmpty()) valueCounts.put(value, (long) matches.cardinality());
+            });
+            facetCounts.put(facet.filterName, valueCounts);
+        }
+        return facetCounts;
+    }
+
+    /**
+     * @param orderBy one of the fields accepted by {@link #isSortable(String)}
+     */
+    List<WorkloadInventoryReportModel> page(BitSet matches, String orderBy, boolean asc, int offset, int size)
+    {
+        int[] order = sortedReports.computeIfAbsent(orderBy, this::sort);
+        List<WorkloadInventoryReportModel> page = new ArrayList<>(Math.min(size, matches.cardinality()));
+        int skipped = 0;
+        for (int i = 0; i < order.length && page.size() < size; i++) {
+            int report = order[asc ? i : order.length - 1 - i];
+            if (!matches.get(report)) continue;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(reports[report]);
+            }
+        }
+        return page;
+    }
+
+    private BitSet all()
+    {
+        BitSet all = new BitSet(reports.length);
+        all.set(0, reports.length);
+        return all;
+    }
+
+    private BitSet matchVmNames(Set<String> vmNames)
+    {
+        if (vmNames == null || vmNames.isEmpty()) return all();
+
+        List<String> lowerCaseValues = vmNames.stream().map(val -> val.trim().toLowerCase()).collect(Collectors.toList());
+        BitSet matches = new BitSet(reports.length);
+        for (int i = 0; i < reports.length; i++) {
+            String vmName = lowerCaseVmNames[i];
+            if (vmName != null && lowerCaseValues.stream().anyMatch(vmName::contains)) matches.set(i);
+        }
+        return matches;
+    }
+
+    /**
+     * @return null if the facet is not filtered
+     */
+    private BitSet match(Facet facet, Set<String> filterValues)
+    {
+        if (filterValues == null || filterValues.isEmpty()) return null;
+
+        Set<String> normalizedValues = filterValues.stream().map(val -> facet.normalize(val.trim())).collect(Collectors.toSet());
+        BitSet matches = new BitSet(reports.length);
+        bitmaps.get(facet).forEach((value, valueReports) -> {
+            if (value != null && normalizedValues.contains(facet.normalize(value))) matches.or(valueReports);
+        });
+        return matches;
+    }
+
+    private int[] sort(String orderBy)
+    {
+        Function<WorkloadInventoryReportModel, Comparable> key = SORT_KEYS.get(orderBy);
+
+        // the reports are already sorted by id, which breaks the ties
+        Integer[] order = new Integer[reports.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int comparison = compare(key.apply(reports[a]), key.apply(reports[b]));
+            return comparison != 0 ? comparison : Integer.compare(a, b);
+        });
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Comparable a, Comparable b)
+    {
+        if (a == null || b == null) {
+            if (a == b) return 0;
+            return (a == null) == nullsSortedHigh ? 1 : -1;
+        }
+        return a.compareTo(b);
+    }
+}
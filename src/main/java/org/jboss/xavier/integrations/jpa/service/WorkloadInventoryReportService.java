@@ -1,28 +1,115 @@
 package org.jboss.xavier.integrations.jpa.service;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.jboss.xavier.analytics.pojo.StringSetConverter;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 import org.jboss.xavier.analytics.pojo.output.WorkloadInventoryReportFiltersModel;
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.jpa.repository.AnalysisRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportSpecs;
+import org.jboss.xavier.integrations.route.dataformat.CsvRecordFormatter;
+import org.jboss.xavier.integrations.route.model.CursorPage;
+import org.jboss.xavier.integrations.route.model.FacetedPage;
 import org.jboss.xavier.integrations.route.model.PageBean;
 import org.jboss.xavier.integrations.route.model.SortBean;
 import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
+import org.jboss.xavier.integrations.route.model.WorkloadInventoryReportCursor;
+import org.jboss.xavier.utils.LruCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.domain.Specifications;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Component
 public class WorkloadInventoryReportService
 {
+    // keeps the bind parameters of every "id in (...)" query well below the JDBC drivers' limits
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    // facets of WorkloadInventoryReportRepository.findAllDistinctFilterValuesByAnalysisId
+    private static final int AVAILABLE_FILTERS = 8;
+
     @Autowired
     WorkloadInventoryReportRepository reportRepository;
 
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @PersistenceUnit
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    AnalysisRepository analysisRepository;
+
+    @Value("${workloadinventoryreport.filters.cacheSize:500}")
+    private int availableFiltersCacheSize;
+
+    private LruCache<Long, WorkloadInventoryReportFiltersModel> availableFiltersCache;
+
+    @Value("${workloadinventoryreport.facetIndex.enabled:true}")
+    private boolean facetIndexEnabled;
+
+    // memory budget of the facet indexes, as the number of reports they hold
+    @Value("${workloadinventoryreport.facetIndex.maxReports:200000}")
+    private long facetIndexMaxReports;
+
+    private LruCache<Long, WorkloadInventoryReportFacetIndex> facetIndexCache;
+
+    @Value("${workloadinventoryreport.csv.fetchSize:500}")
+    private int csvFetchSize;
+
+    private final CsvRecordFormatter<WorkloadInventoryReportModel> csvRecordFormatter = new CsvRecordFormatter<>(WorkloadInventoryReportModel.class);
+
+    // where the database sorts the null values, needed to go past them with the cursor pagination
+    private boolean nullsSortedHigh;
+
+    @PostConstruct
+    public void init() throws MetaDataAccessException {
+        nullsSortedHigh = (Boolean) JdbcUtils.extractDatabaseMetaData(dataSource, "nullsAreSortedHigh");
+        availableFiltersCache = new LruCache<>(availableFiltersCacheSize);
+        facetIndexCache = new LruCache<>(facetIndexMaxReports, WorkloadInventoryReportFacetIndex::size);
+    }
+
     public static Sort getWorkloadInventoryReportModelSort(SortBean sortBean) {
         // Direction
         Sort.Direction direction;
@@ -68,12 +155,89 @@ public class WorkloadInventoryReportService
         return reportRepository.findAll(specification, sort);
     }
 
+    public InputStream streamCsvByAnalysisOwnerAndAnalysisId(String analysisOwner, Long analysisId) {
+        Specification<WorkloadInventoryReportModel> specification = WorkloadInventoryReportSpecs.getByAnalysisOwnerAndAnalysisIdAndFilterBean(analysisOwner, analysisId, new WorkloadInventoryFilterBean());
+        return streamCsv(specification, null);
+    }
+
+    public InputStream streamCsvByAnalysisOwnerAndAnalysisId(
+            String analysisOwner,
+            Long analysisId,
+            SortBean sortBean,
+            WorkloadInventoryFilterBean filterBean
+    ) {
+        Specification<WorkloadInventoryReportModel> specification = WorkloadInventoryReportSpecs.getByAnalysisOwnerAndAnalysisIdAndFilterBean(analysisOwner, analysisId, filterBean);
+        return streamCsv(specification, getWorkloadInventoryReportModelSort(sortBean));
+    }
+
+    /**
+     * The reports are read with a forward only cursor opened by an entity manager of its own, in a read only
+     * transaction, since the returned stream is consumed once the route has completed, i.e. while it's written
+     * to the response. Both are released when the stream is closed.
+     *
+     * @param sort null to leave the reports in the order of the database
+     */
+    private InputStream streamCsv(Specification<WorkloadInventoryReportModel> specification, Sort sort) {
+        EntityManager streamEntityManager = entityManagerFactory.createEntityManager();
+        try {
+            streamEntityManager.getTransaction().begin();
+
+            CriteriaBuilder cb = streamEntityManager.getCriteriaBuilder();
+            CriteriaQuery<WorkloadInventoryReportModel> query = cb.createQuery(WorkloadInventoryReportModel.class);
+            Root<WorkloadInventoryReportModel> root = query.from(WorkloadInventoryReportModel.class);
+            query.where(specification.toPredicate(root, query, cb));
+            if (sort != null) query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+            ScrollableResults results = streamEntityManager.createQuery(query)
+                    .unwrap(org.hibernate.Query.class)
+                    .setFetchSize(csvFetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            return new WorkloadInventoryReportCsvInputStream(streamEntityManager, results, csvRecordFormatter);
+        } catch (RuntimeException e) {
+            if (streamEntityManager.getTransaction().isActive()) streamEntityManager.getTransaction().rollback();
+            streamEntityManager.close();
+            throw e;
+        }
+    }
+
     public Page<WorkloadInventoryReportModel> findByAnalysisOwnerAndAnalysisId(
             String analysisOwner,
             Long analysisId,
             PageBean pageBean,
             SortBean sortBean,
             WorkloadInventoryFilterBean filterBean
+    ) {
+        return findPage(analysisOwner, analysisId, pageBean, sortBean, filterBean, false);
+    }
+
+    /**
+     * Same page of {@link #findByAnalysisOwnerAndAnalysisId(String, Long, PageBean, SortBean, WorkloadInventoryFilterBean)}
+     * along with the number of reports matching every value of every facet, where the values of a facet are counted
+     * disregarding the filter on the facet itself so that they can be added to it
+     */
+    public FacetedPage<WorkloadInventoryReportModel> findByAnalysisOwnerAndAnalysisIdWithFacetCounts(
+            String analysisOwner,
+            Long analysisId,
+            PageBean pageBean,
+            SortBean sortBean,
+            WorkloadInventoryFilterBean filterBean
+    ) {
+        return findPage(analysisOwner, analysisId, pageBean, sortBean, filterBean, true);
+    }
+
+    /**
+     * The page and the facet counts are taken from the in memory facet index of the analysis when it's enabled and
+     * the analysis has been created, otherwise from the database. The page is taken from the database anyway when
+     * sorting by a text field, to follow the collation of the database.
+     */
+    private FacetedPage<WorkloadInventoryReportModel> findPage(
+            String analysisOwner,
+            Long analysisId,
+            PageBean pageBean,
+            SortBean sortBean,
+            WorkloadInventoryFilterBean filterBean,
+            boolean withFacetCounts
     ) {
         // Sort
         Sort sort = getWorkloadInventoryReportModelSort(sortBean);
@@ -83,30 +247,226 @@ public class WorkloadInventoryReportService
         int size = pageBean.getSize();
         Pageable pageable = new PageRequest(page, size, sort);
 
+        WorkloadInventoryReportFacetIndex facetIndex = findFacetIndex(analysisId);
+        if (facetIndex != null && !Objects.equals(facetIndex.getOwner(), analysisOwner)) facetIndex = null;
+
+        Map<String, Map<String, Long>> facetCounts = null;
+        if (withFacetCounts) {
+            facetCounts = facetIndex != null ? facetIndex.countFacets(filterBean) : countFacets(analysisOwner, analysisId, filterBean);
+        }
+
+        if (facetIndex != null && WorkloadInventoryReportFacetIndex.isSortable(sortBean.getOrderBy())) {
+            boolean asc = sortBean.isOrderAsc() == null || sortBean.isOrderAsc();
+            BitSet matches = facetIndex.match(filterBean);
+            List<WorkloadInventoryReportModel> content = facetIndex.page(matches, sortBean.getOrderBy(), asc, pageable.getOffset(), size);
+            return new FacetedPage<>(content, pageable, matches.cardinality(), facetCounts);
+        }
+
         // Filtering
         Specification<WorkloadInventoryReportModel> specification = WorkloadInventoryReportSpecs.getByAnalysisOwnerAndAnalysisIdAndFilterBean(analysisOwner, analysisId, filterBean);
 
-        return reportRepository.findAll(specification, pageable);
+        Page<WorkloadInventoryReportModel> workloadInventoryReportModels = reportRepository.findAll(specification, pageable);
+        return new FacetedPage<>(workloadInventoryReportModels.getContent(), pageable, workloadInventoryReportModels.getTotalElements(), facetCounts);
+    }
+
+    /**
+     * The facet indexes of the created analyses are built on first use and kept, within their memory budget,
+     * until {@link #evictCachedReports(Long)}
+     *
+     * @return null if the indexes are disabled, the analysis doesn't exist or it has not been created yet
+     */
+    private WorkloadInventoryReportFacetIndex findFacetIndex(Long analysisId) {
+        if (!facetIndexEnabled) return null;
+
+        WorkloadInventoryReportFacetIndex facetIndex = facetIndexCache.get(analysisId);
+        if (facetIndex != null) return facetIndex;
+
+        // the status is checked before reading the reports, so that the kept index holds the final ones
+        AnalysisModel analysisModel = analysisRepository.findOne(analysisId);
+        if (analysisModel == null || !AnalysisService.STATUS.CREATED.toString().equalsIgnoreCase(analysisModel.getStatus())) return null;
+
+        facetIndex = new WorkloadInventoryReportFacetIndex(analysisModel.getOwner(),
+                reportRepository.findByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisId), nullsSortedHigh);
+        facetIndexCache.put(analysisId, facetIndex);
+        return facetIndex;
+    }
+
+    /**
+     * Facet counts of {@link WorkloadInventoryReportFacetIndex#countFacets(WorkloadInventoryFilterBean)} read from the database:
+     * the reports are grouped by the encoded sets too, which are then decoded and counted by element here
+     */
+    private Map<String, Map<String, Long>> countFacets(String analysisOwner, Long analysisId, WorkloadInventoryFilterBean filterBean) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Map<String, Map<String, Long>> facetCounts = new LinkedHashMap<>();
+        for (WorkloadInventoryReportFacetIndex.Facet facet : WorkloadInventoryReportFacetIndex.Facet.values()) {
+            Specification<WorkloadInventoryReportModel> specification = WorkloadInventoryReportSpecs.getByAnalysisOwnerAndAnalysisIdAndFilterBean(analysisOwner, analysisId, facet.withoutFilter(filterBean));
+            CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+            Root<WorkloadInventoryReportModel> root = query.from(WorkloadInventoryReportModel.class);
+            Path<String> value = root.get(facet.getAttributeName());
+            // null values can't be filtered, hence they're not counted
+            query.multiselect(value, cb.count(root))
+                    .where(specification.toPredicate(root, query, cb), cb.isNotNull(value))
+                    .groupBy(value);
+
+            Map<String, Long> valueCounts = new TreeMap<>();
+            for (Object[] row : entityManager.createQuery(query).getResultList()) {
+                long count = ((Number) row[1]).longValue();
+                Collection<String> values = facet.isSet() ? StringSetConverter.decode((String) row[0]) : Collections.singleton((String) row[0]);
+                values.forEach(element -> valueCounts.merge(element, count, Long::sum));
+            }
+            facetCounts.put(facet.getFilterName(), valueCounts);
+        }
+        return facetCounts;
+    }
+
+    /**
+     * Cursor (keyset) pagination: the page starts right after the report referenced by the cursor, or at the first
+     * report with an empty one, so neither an offset nor the count of all the reports is needed to get it.
+     * The reports are always sorted by provider, datacenter, cluster, VM name and id, in the direction of the sort bean.
+     *
+     * @param withTotal whether to count all the reports too
+     */
+    public CursorPage<WorkloadInventoryReportModel> findByAnalysisOwnerAndAnalysisIdAfterCursor(
+            String analysisOwner,
+            Long analysisId,
+            String cursor,
+            PageBean pageBean,
+            SortBean sortBean,
+            WorkloadInventoryFilterBean filterBean,
+            boolean withTotal
+    ) {
+        boolean asc = sortBean.isOrderAsc() == null || sortBean.isOrderAsc();
+        int size = pageBean.getSize();
+
+        // Filtering
+        Specification<WorkloadInventoryReportModel> specification = WorkloadInventoryReportSpecs.getByAnalysisOwnerAndAnalysisIdAndFilterBean(analysisOwner, analysisId, filterBean);
+        WorkloadInventoryReportCursor after = WorkloadInventoryReportCursor.decode(cursor);
+        Specification<WorkloadInventoryReportModel> pageSpecification = after != null ?
+                Specifications.where(specification).and(WorkloadInventoryReportSpecs.getAfterCursorSpecification(after, asc, nullsSortedHigh)) : specification;
+
+        // one more report tells whether there's a next page
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<WorkloadInventoryReportModel> query = cb.createQuery(WorkloadInventoryReportModel.class);
+        Root<WorkloadInventoryReportModel> root = query.from(WorkloadInventoryReportModel.class);
+        query.where(pageSpecification.toPredicate(root, query, cb));
+        query.orderBy(WorkloadInventoryReportSpecs.getCursorOrders(root, cb, asc));
+        List<WorkloadInventoryReportModel> workloadInventoryReportModels = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+
+        boolean hasNext = workloadInventoryReportModels.size() > size;
+        List<WorkloadInventoryReportModel> content = hasNext ? new ArrayList<>(workloadInventoryReportModels.subList(0, size)) : workloadInventoryReportModels;
+        String nextCursor = hasNext ? WorkloadInventoryReportCursor.of(content.get(size - 1)).encode() : null;
+        Long totalElements = withTotal ? reportRepository.count(specification) : null;
+        return new CursorPage<>(content, nextCursor, totalElements);
     }
 
     public WorkloadInventoryReportModel findOneByOwnerAndId(String owner, Long id) {
         return reportRepository.findByAnalysisOwnerAndId(owner, id);
     }
 
+    public List<WorkloadInventoryReportModel> findByOwnerAndIds(String owner, List<Long> ids) {
+        List<WorkloadInventoryReportModel> workloadInventoryReportModels = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            workloadInventoryReportModels.addAll(reportRepository.findByAnalysisOwnerAndIdIn(owner, ids.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ids.size()))));
+        }
+        return workloadInventoryReportModels;
+    }
+
+    /**
+     * Copies the complexity and the flags of the reevaluated reports into the persisted ones owned by the user.
+     * The persisted reports are loaded in bulk and updated within the same transaction so that the changes
+     * are flushed with batched updates, without looking up and merging every report on its own.
+     *
+     * @return the updated reports, in the same order as the reevaluated ones, skipping the ones not found
+     */
+    @Transactional
+    public List<WorkloadInventoryReportModel> updateComplexityAndFlagsIMS(String owner, List<WorkloadInventoryReportModel> reevaluatedWorkloadInventoryReportModels)
+    {
+        List<Long> ids = reevaluatedWorkloadInventoryReportModels.stream()
+                .map(WorkloadInventoryReportModel::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, WorkloadInventoryReportModel> persistedWorkloadInventoryReportModels = new HashMap<>(ids.size());
+        findByOwnerAndIds(owner, ids).forEach(wir -> persistedWorkloadInventoryReportModels.put(wir.getId(), wir));
+        evictCachedReportsAfterTransaction(persistedWorkloadInventoryReportModels.values().stream()
+                .map(WorkloadInventoryReportModel::getAnalysis)
+                .filter(Objects::nonNull)
+                .map(AnalysisModel::getId)
+                .collect(Collectors.toSet()));
+
+        return reevaluatedWorkloadInventoryReportModels.stream()
+                .map(reevaluatedWir -> {
+                    WorkloadInventoryReportModel persistedWir = persistedWorkloadInventoryReportModels.get(reevaluatedWir.getId());
+                    if (persistedWir != null) {
+                        persistedWir.setComplexity(reevaluatedWir.getComplexity());
+                        persistedWir.setFlagsIMS(reevaluatedWir.getFlagsIMS());
+                    }
+                    return persistedWir;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The available filters are computed with a single query and, since the reports don't change anymore once the
+     * analysis has been created, they are cached for the created analyses until {@link #evictCachedReports(Long)}
+     */
     public WorkloadInventoryReportFiltersModel findAvailableFiltersByAnalysisId(Long analysisId) {
-        WorkloadInventoryReportFiltersModel filters = new WorkloadInventoryReportFiltersModel();
-        filters.setProviders(reportRepository.findAllDistinctProvidersByAnalysisId(analysisId));
-        filters.setClusters(reportRepository.findAllDistinctClustersByAnalysisId(analysisId));
-        filters.setDatacenters(reportRepository.findAllDistinctDatacentersByAnalysisId(analysisId));
-        filters.setComplexities(reportRepository.findAllDistinctComplexitiesByAnalysisId(analysisId));
-        filters.setWorkloads(reportRepository.findAllDistinctWorkloadsByAnalysisId(analysisId));
-        filters.setRecommendedTargetsIMS(reportRepository.findAllDistinctRecommendedTargetsIMSByAnalysisId(analysisId));
-        filters.setFlagsIMS(reportRepository.findAllDistinctFlagsIMSByAnalysisId(analysisId));
-        filters.setOsNames(reportRepository.findAllDistinctOsNamesByAnalysisId(analysisId));
+        WorkloadInventoryReportFiltersModel filters = availableFiltersCache.get(analysisId);
+        if (filters != null) return filters;
+
+        // the status is checked before reading the reports, so that the cached filters are the final ones
+        AnalysisModel analysisModel = analysisRepository.findOne(analysisId);
+        boolean created = analysisModel != null && AnalysisService.STATUS.CREATED.toString().equalsIgnoreCase(analysisModel.getStatus());
+
+        List<Set<String>> values = new ArrayList<>();
+        for (int i = 0; i < AVAILABLE_FILTERS; i++) values.add(new HashSet<>());
+        for (Object[] row : reportRepository.findAllDistinctFilterValuesByAnalysisId(analysisId)) {
+            int facet = ((Number) row[0]).intValue();
+            String value = (String) row[1];
+            if (facet >= 4 && facet <= 6) {
+                values.get(facet).addAll(StringSetConverter.decode(value));
+            } else {
+                values.get(facet).add(value);
+            }
+        }
+
+        filters = new WorkloadInventoryReportFiltersModel();
+        filters.setProviders(values.get(0));
+        filters.setClusters(values.get(1));
+        filters.setDatacenters(values.get(2));
+        filters.setComplexities(values.get(3));
+        filters.setWorkloads(values.get(4));
+        filters.setRecommendedTargetsIMS(values.get(5));
+        filters.setFlagsIMS(values.get(6));
+        filters.setOsNames(values.get(7));
 
+        if (created) availableFiltersCache.put(analysisId, filters);
         return filters;
     }
 
+    /**
+     * Discards the available filters and the facet index of the analysis, to be called whenever its reports change
+     */
+    public void evictCachedReports(Long analysisId) {
+        availableFiltersCache.remove(analysisId);
+        facetIndexCache.remove(analysisId);
+    }
+
+    // evicting before the commit would let a concurrent request cache the reports as they were
+    private void evictCachedReportsAfterTransaction(Collection<Long> analysisIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    analysisIds.forEach(WorkloadInventoryReportService.this::evictCachedReports);
+                }
+            });
+        } else {
+            analysisIds.forEach(this::evictCachedReports);
+        }
+    }
+
     public void saveAll(List<WorkloadInventoryReportModel> workloadInventoryReportModels)
     {
         reportRepository.save(workloadInventoryReportModels);
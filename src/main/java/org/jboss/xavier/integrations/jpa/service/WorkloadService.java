@@ -1,6 +1,7 @@
 package org.jboss.xavier.integrations.jpa.service;
 
 import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadModel;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadRepository;
 import org.jboss.xavier.integrations.route.model.PageBean;
 import org.jboss.xavier.integrations.route.model.SortBean;
@@ -9,19 +10,48 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.Comparator;
 import java.util.List;
 
 @Component
 public class WorkloadService
 {
+    static final Comparator<WorkloadModel> WORKLOAD_MODELS_ORDER = getWorkloadModelsOrder(Comparator.naturalOrder());
+
     @Autowired
     WorkloadRepository workloadRepository;
 
+    @Autowired
+    WorkloadInventoryReportRepository workloadInventoryReportRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    private boolean calculatedByDatabase;
+
+    @PostConstruct
+    public void init() throws MetaDataAccessException
+    {
+        calculatedByDatabase = EncodedSetSummary.isCalculatedByDatabase(dataSource);
+    }
+
+    // "order by workload, osName, vms" of the named query
+    static Comparator<WorkloadModel> getWorkloadModelsOrder(Comparator<String> textOrder)
+    {
+        return Comparator.comparing(WorkloadModel::getWorkload, Comparator.nullsLast(textOrder))
+                .thenComparing(WorkloadModel::getOsName, Comparator.nullsLast(textOrder))
+                .thenComparing(WorkloadModel::getVms);
+    }
+
     public List<WorkloadModel> calculateWorkloadsModels(Long analysisId)
     {
-        return workloadRepository.calculateWorkloadsModels(analysisId);
+        if (calculatedByDatabase) return workloadRepository.calculateWorkloadsModels(analysisId);
+        return EncodedSetSummary.calculate(workloadInventoryReportRepository.findEncodedWorkloadsByAnalysisId(analysisId), WorkloadModel::new, WORKLOAD_MODELS_ORDER);
     }
 
     public Page<WorkloadModel> findByReportAnalysisOwnerAndReportAnalysisId(String analysisOwner, Long analysisId, PageBean pageBean, SortBean sortBean) {
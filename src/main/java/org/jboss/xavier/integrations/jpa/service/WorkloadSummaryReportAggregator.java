@@ -0,0 +1,207 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.ComplexityModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.FlagModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.RecommendedTargetsIMSModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.ScanRunModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.SummaryModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadsDetectedOSTypeModel;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the whole workload summary report of an analysis in a single pass over its workload inventory reports,
+ * with the same figures as the native queries of the summary models (e.g. {@link SummaryModel}) and their order:
+ * the texts are compared by the order of the database (see {@link #getTexts()}), taking the null values last as
+ * PostgreSQL does
+ */
+final class WorkloadSummaryReportAggregator
+{
+    private static final String UNKNOWN = "unknown";
+
+    private final Map<List<String>, Summary> summaries = new HashMap<>();
+    private final Map<String, Integer> complexities = new HashMap<>();
+    private final Map<String, Integer> recommendedTargetsIMS = new HashMap<>();
+    private final EncodedSetSummary workloads = new EncodedSetSummary();
+    private final EncodedSetSummary flags = new EncodedSetSummary();
+    private final Map<ScanRun, Boolean> scanRuns = new HashMap<>();
+    private final Set<String> texts = new HashSet<>();
+    private int total;
+
+    void accept(WorkloadInventoryReportModel workloadInventoryReportModel)
+    {
+        total++;
+
+        summaries.computeIfAbsent(Arrays.asList(workloadInventoryReportModel.getProvider(), workloadInventoryReportModel.getProduct(), workloadInventoryReportModel.getVersion()),
+                key -> new Summary(key.get(0), key.get(1), key.get(2)))
+                .add(workloadInventoryReportModel);
+
+        String complexity = workloadInventoryReportModel.getComplexity();
+        complexities.merge(complexity != null ? complexity.toLowerCase() : UNKNOWN, 1, Integer::sum);
+
+        if (workloadInventoryReportModel.getRecommendedTargetsIMS() != null) {
+            workloadInventoryReportModel.getRecommendedTargetsIMS().stream()
+                    .map(String::toLowerCase)
+                    .distinct()
+                    .forEach(recommendedTarget -> recommendedTargetsIMS.merge(recommendedTarget, 1, Integer::sum));
+        }
+
+        workloads.add(workloadInventoryReportModel.getId(), workloadInventoryReportModel.getCluster(), workloadInventoryReportModel.getOsName(), workloadInventoryReportModel.getWorkloads());
+        flags.add(workloadInventoryReportModel.getId(), workloadInventoryReportModel.getCluster(), workloadInventoryReportModel.getOsName(), workloadInventoryReportModel.getFlagsIMS());
+
+        addTexts(Arrays.asList(workloadInventoryReportModel.getProvider(), workloadInventoryReportModel.getProduct(),
+                workloadInventoryReportModel.getVersion(), workloadInventoryReportModel.getOsName()));
+        addTexts(workloadInventoryReportModel.getWorkloads());
+        addTexts(workloadInventoryReportModel.getFlagsIMS());
+
+        // bool_or: null only if all the values are null
+        ScanRun scanRun = new ScanRun(workloadInventoryReportModel.getProvider(), toLocalDate(workloadInventoryReportModel.getCreationDate()));
+        Boolean ssaEnabled = workloadInventoryReportModel.getSsaEnabled();
+        Boolean type = scanRuns.get(scanRun);
+        scanRuns.put(scanRun, type == null ? ssaEnabled : (ssaEnabled == null ? type : type || ssaEnabled));
+    }
+
+    /**
+     * @return the texts the models are sorted by, to be ordered by the database
+     */
+    Set<String> getTexts()
+    {
+        return texts;
+    }
+
+    /**
+     * @param textOrder the order of the database of all the {@link #getTexts()}
+     */
+    WorkloadSummaryReportModel build(Comparator<String> textOrder)
+    {
+        Comparator<String> nullsLast = Comparator.nullsLast(textOrder);
+        WorkloadSummaryReportModel workloadSummaryReportModel = new WorkloadSummaryReportModel();
+
+        workloadSummaryReportModel.setSummaryModels(summaries.values().stream()
+                .sorted(Comparator.comparing((Summary summary) -> summary.provider, nullsLast)
+                        .thenComparing(summary -> summary.product, nullsLast)
+                        .thenComparing(summary -> summary.version, nullsLast))
+                .map(Summary::toSummaryModel)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        // the sums over no reports are null
+        workloadSummaryReportModel.setComplexityModel(total == 0 ? new ComplexityModel(null, null, null, null, null) :
+                new ComplexityModel(complexities.getOrDefault("easy", 0), complexities.getOrDefault("medium", 0),
+                        complexities.getOrDefault("hard", 0), complexities.getOrDefault(UNKNOWN, 0), complexities.getOrDefault("unsupported", 0)));
+
+        workloadSummaryReportModel.setRecommendedTargetsIMSModel(new RecommendedTargetsIMSModel(total, recommendedTargetsIMS.getOrDefault("rhv", 0),
+                recommendedTargetsIMS.getOrDefault("osp", 0), recommendedTargetsIMS.getOrDefault("rhel", 0)));
+
+        List<WorkloadModel> workloadModels = workloads.build(WorkloadModel::new, WorkloadService.getWorkloadModelsOrder(textOrder));
+        workloadSummaryReportModel.setWorkloadModels(workloadModels);
+
+        List<FlagModel> flagModels = flags.build(FlagModel::new, FlagService.getFlagModelsOrder(textOrder));
+        workloadSummaryReportModel.setFlagModels(flagModels);
+
+        workloadSummaryReportModel.setScanRunModels(scanRuns.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<ScanRun, Boolean> entry) -> entry.getKey().provider, nullsLast)
+                        .thenComparing(entry -> entry.getKey().date, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(entry -> new ScanRunModel(entry.getKey().provider,
+                        entry.getKey().date != null ? Timestamp.valueOf(entry.getKey().date.atStartOfDay()) : null, entry.getValue()))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        // grouped by the OS names of the workloads just calculated, the null ones being named "unknown"
+        Map<String, Integer> workloadsByOsName = new HashMap<>();
+        workloadModels.forEach(workloadModel -> workloadsByOsName.merge(workloadModel.getOsName(), workloadModel.getVms(), Integer::sum));
+        workloadSummaryReportModel.setWorkloadsDetectedOSTypeModels(workloadsByOsName.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(nullsLast))
+                .map(entry -> new WorkloadsDetectedOSTypeModel(entry.getKey() != null ? entry.getKey() : UNKNOWN, entry.getValue()))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        return workloadSummaryReportModel;
+    }
+
+    private void addTexts(Collection<String> values)
+    {
+        if (values == null) return;
+        values.stream().filter(Objects::nonNull).forEach(texts::add);
+    }
+
+    // the date of the creation date, as "cast(creation_date as date)"
+    private static LocalDate toLocalDate(Date date)
+    {
+        return date != null ? new Timestamp(date.getTime()).toLocalDateTime().toLocalDate() : null;
+    }
+
+    private static final class Summary
+    {
+        private final String provider;
+        private final String product;
+        private final String version;
+        private final Set<String> hosts = new HashSet<>();
+        private final Set<String> clusters = new HashSet<>();
+        private Long sockets;
+        private int vms;
+
+        private Summary(String provider, String product, String version)
+        {
+            this.provider = provider;
+            this.product = product;
+            this.version = version;
+        }
+
+        private void add(WorkloadInventoryReportModel workloadInventoryReportModel)
+        {
+            vms++;
+            if (workloadInventoryReportModel.getHost_name() != null) hosts.add(workloadInventoryReportModel.getHost_name());
+            if (workloadInventoryReportModel.getCluster() != null) clusters.add(workloadInventoryReportModel.getCluster());
+            if (workloadInventoryReportModel.getCpuCores() != null) {
+                sockets = (sockets != null ? sockets : 0L) + workloadInventoryReportModel.getCpuCores();
+            }
+        }
+
+        private SummaryModel toSummaryModel()
+        {
+            return new SummaryModel(provider, product, version, hosts.size(), clusters.size(), sockets, vms);
+        }
+    }
+
+    private static final class ScanRun
+    {
+        private final String provider;
+        private final LocalDate date;
+
+        private ScanRun(String provider, LocalDate date)
+        {
+            this.provider = provider;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ScanRun scanRun = (ScanRun) o;
+            return Objects.equals(provider, scanRun.provider) &&
+                    Objects.equals(date, scanRun.date);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(provider, date);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package org.jboss.xavier.integrations.jpa.service;
 
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
 import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
+import org.jboss.xavier.integrations.jpa.repository.DatabaseCollation;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadSummaryReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.stream.Stream;
 
 @Component
 public class WorkloadSummaryReportService
@@ -11,8 +19,36 @@ public class WorkloadSummaryReportService
     @Autowired
     WorkloadSummaryReportRepository reportRepository;
 
+    @Autowired
+    WorkloadInventoryReportRepository workloadInventoryReportRepository;
+
+    @Autowired
+    DatabaseCollation databaseCollation;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
     public WorkloadSummaryReportModel findByAnalysisOwnerAndAnalysisId(String analysisOwner, Long analysisId)
     {
         return reportRepository.findByAnalysisOwnerAndAnalysisId(analysisOwner, analysisId);
     }
+
+    /**
+     * Calculates all the models of the Workload Summary Report in a single pass over the workload inventory reports
+     * of the analysis, streamed from the database and detached as soon as they're aggregated, and then sorts them
+     * with a single query as the queries of the models do.
+     * The report is not persisted.
+     */
+    @Transactional(readOnly = true)
+    public WorkloadSummaryReportModel calculateWorkloadSummaryReportModel(Long analysisId)
+    {
+        WorkloadSummaryReportAggregator aggregator = new WorkloadSummaryReportAggregator();
+        try (Stream<WorkloadInventoryReportModel> workloadInventoryReportModels = workloadInventoryReportRepository.streamByAnalysisId(analysisId)) {
+            workloadInventoryReportModels.forEach(workloadInventoryReportModel -> {
+                aggregator.accept(workloadInventoryReportModel);
+                entityManager.detach(workloadInventoryReportModel);
+            });
+        }
+        return aggregator.build(databaseCollation.getOrder(aggregator.getTexts()));
+    }
 }
@@ -1,7 +1,7 @@
 package org.jboss.xavier.integrations.migrationanalytics.business;
 
-import com.jayway.jsonpath.DocumentContext;
 import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.integrations.migrationanalytics.business.indexing.InventoryIndex;
 import org.jboss.xavier.integrations.migrationanalytics.business.issuehandling.AnalysisIssuesHandler;
 import org.jboss.xavier.integrations.migrationanalytics.business.versioning.ManifestVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,12 +11,9 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -59,29 +56,22 @@ public abstract class AbstractVMWorkloadInventoryCalculator {
     @Inject
     protected AnalysisIssuesHandler analysisIssuesHandler;
 
-    protected DocumentContext jsonParsed;
-    protected String manifestVersion;
-    protected Date scanRunDate;
-
-    protected Map<String, String> readMapValuesFromExpandedEnvVarPath(String envVarPath, Map vmStructMap, String keyfield, String valuefield) {
-        String expandParamsInPath = getExpandedPath(envVarPath, vmStructMap);
+    protected Map<String, String> readMapValuesFromExpandedEnvVarPath(CalculationContext context, String envVarPath, Map vmStructMap, String keyfield, String valuefield) {
         Map<String,String> files = new HashMap<>();
         try {
-            List<List<Map>> value = jsonParsed.read(expandParamsInPath);
+            List<List<Map>> value = (List<List<Map>>) readFromInventory(context, envVarPath, vmStructMap);
             value.stream().flatMap(Collection::stream).collect(Collectors.toList()).forEach(e-> files.put((String) e.get(keyfield), (String) e.get(valuefield)));
         } catch (Exception e) {
-            analysisIssuesHandler.record(vmStructMap.get("_analysisId").toString(), "VM", vmStructMap.get("name").toString(), expandParamsInPath, e.getMessage());
+            recordIssue(context, envVarPath, vmStructMap, e.getMessage());
         }
         return files;
     }
 
-    protected <T> T readValueFromExpandedEnvVarPath(String envVarPath, Map vmStructMap, Class type) {
-        String expandParamsInPath = getExpandedPath(envVarPath, vmStructMap);
-
+    protected <T> T readValueFromExpandedEnvVarPath(CalculationContext context, String envVarPath, Map vmStructMap, Class type) {
         Object value;
 
         try {
-            value = jsonParsed.read(expandParamsInPath);
+            value = readFromInventory(context, envVarPath, vmStructMap);
             if (value instanceof Collection) {
                 value = ((List<T>) value).get(0);
             }
@@ -92,45 +82,45 @@ public abstract class AbstractVMWorkloadInventoryCalculator {
             }
         } catch (Exception e) {
             value = null;
-            analysisIssuesHandler.record(vmStructMap.get("_analysisId").toString(), "VM", vmStructMap.get("name").toString(), expandParamsInPath, e.getMessage());
+            recordIssue(context, envVarPath, vmStructMap, e.getMessage());
         }
         return (T) value;
     }
 
-    protected <T> T readValueFromExpandedEnvVarPath(String envVarPath, Map vmStructMap) {
-        return readValueFromExpandedEnvVarPath(envVarPath, vmStructMap, Object.class);
+    protected <T> T readValueFromExpandedEnvVarPath(CalculationContext context, String envVarPath, Map vmStructMap) {
+        return readValueFromExpandedEnvVarPath(context, envVarPath, vmStructMap, Object.class);
     }
 
-    protected <T> List<T> readListValuesFromExpandedEnvVarPath(String envVarPath, Map vmStructMap) {
-        String pathWithExpandedParams = getExpandedPath(envVarPath, vmStructMap);
-
+    protected <T> List<T> readListValuesFromExpandedEnvVarPath(CalculationContext context, String envVarPath, Map vmStructMap) {
         try {
-            Object value = jsonParsed.read(pathWithExpandedParams);
+            Object value = readFromInventory(context, envVarPath, vmStructMap);
             if (value instanceof Collection) {
                 return new ArrayList<>((List<T>) value);
             } else {
                 return Collections.singletonList((T) value);
             }
         } catch (Exception e) {
-            analysisIssuesHandler.record(vmStructMap.get("_analysisId").toString(), "VM", vmStructMap.get("name").toString(), pathWithExpandedParams, e.getMessage());
+            recordIssue(context, envVarPath, vmStructMap, e.getMessage());
             return Collections.emptyList();
         }
     }
 
-    protected String getExpandedPath(String envVarPath, Map vmStructMap) {
-        String path = manifestVersionService.getPropertyWithFallbackVersion(manifestVersion, envVarPath);
+    protected Object readFromInventory(CalculationContext context, String envVarPath, Map vmStructMap) {
+        String path = manifestVersionService.getPropertyWithFallbackVersion(context.getManifestVersion(), envVarPath);
+        return context.getInventoryIndex().read(path, vmStructMap);
+    }
+
+    protected void recordIssue(CalculationContext context, String envVarPath, Map vmStructMap, String message) {
+        String vmName = vmStructMap != null ? String.valueOf(vmStructMap.get("name")) : null;
+        analysisIssuesHandler.record(context.getAnalysisId(), "VM", vmName, getExpandedPath(context, envVarPath, vmStructMap), message);
+    }
+
+    protected String getExpandedPath(CalculationContext context, String envVarPath, Map vmStructMap) {
+        String path = manifestVersionService.getPropertyWithFallbackVersion(context.getManifestVersion(), envVarPath);
         return expandParamsInPath(path, vmStructMap);
     }
 
     protected String expandParamsInPath(String path, Map vmStructMap) {
-        Pattern p = Pattern.compile("\\{[a-zA-Z1-9_]+\\}");
-        Matcher m = p.matcher(path);
-        while (m.find() && vmStructMap != null) {
-            String key = m.group().substring(1, m.group().length() - 1);
-            String value = (vmStructMap.containsKey(key) && vmStructMap.get(key) != null) ? vmStructMap.get(key).toString() : "";
-            path = path.replace(m.group(), value);
-        }
-
-        return path;
+        return path != null ? InventoryIndex.expandParams(path, vmStructMap) : null;
     }
 }
@@ -0,0 +1,50 @@
+package org.jboss.xavier.integrations.migrationanalytics.business;
+
+import com.jayway.jsonpath.DocumentContext;
+import org.jboss.xavier.integrations.migrationanalytics.business.indexing.InventoryIndex;
+
+import java.util.Date;
+
+/**
+ * Immutable state of a single calculation, passed along to the calculators' methods
+ * so that the calculators themselves are stateless and can be shared between threads.
+ */
+public class CalculationContext {
+    private final CloudFormsPayload cloudFormsPayload;
+    private final String analysisId;
+    private final Date scanRunDate;
+
+    public CalculationContext(CloudFormsPayload cloudFormsPayload, String analysisId) {
+        this(cloudFormsPayload, analysisId, null);
+    }
+
+    private CalculationContext(CloudFormsPayload cloudFormsPayload, String analysisId, Date scanRunDate) {
+        this.cloudFormsPayload = cloudFormsPayload;
+        this.analysisId = analysisId;
+        this.scanRunDate = scanRunDate;
+    }
+
+    public CalculationContext withScanRunDate(Date scanRunDate) {
+        return new CalculationContext(cloudFormsPayload, analysisId, scanRunDate);
+    }
+
+    public DocumentContext getDocument() {
+        return cloudFormsPayload.getDocument();
+    }
+
+    public String getManifestVersion() {
+        return cloudFormsPayload.getManifestVersion();
+    }
+
+    public InventoryIndex getInventoryIndex() {
+        return cloudFormsPayload.getInventoryIndex();
+    }
+
+    public String getAnalysisId() {
+        return analysisId;
+    }
+
+    public Date getScanRunDate() {
+        return scanRunDate;
+    }
+}
@@ -1,7 +1,9 @@
 package org.jboss.xavier.integrations.migrationanalytics.business;
 
-import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.DocumentContext;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public interface Calculator<T> {
@@ -13,16 +15,15 @@ public interface Calculator<T> {
     String YEAR_3_HYPERVISORPERCENTAGE = "percentageOfHypervisorsMigratedOnYear3";
     String GROWTHRATEPERCENTAGE = "yearOverYearGrowthRatePercentage";
 
-    T calculate(String cloudFormsJson, Map<String, Object> headers);
+    // distinct names so that the Camel bean binding never has to choose between the overloads
+    T calculateFromPayload(CloudFormsPayload cloudFormsPayload, Map<String, Object> headers);
 
-    // It will try to extract the version of the payload from the JSON file, falling back to v1
-    default String getManifestVersion(String cloudFormsJson) {
-        String versionJsonpath = "$.manifest.manifest.version";
+    default T calculate(String cloudFormsJson, Map<String, Object> headers) {
+        return calculateFromPayload(CloudFormsPayload.parse(new ByteArrayInputStream(cloudFormsJson.getBytes(StandardCharsets.UTF_8)), this::getManifestVersion), headers);
+    }
 
-        try {
-            return JsonPath.parse(cloudFormsJson).read(versionJsonpath, String.class).replace(".", "_");
-        } catch (Exception e) {
-            return "0";
-        }
+    // It will try to extract the version of the payload from the JSON file, falling back to v1
+    default String getManifestVersion(DocumentContext cloudFormsDocument) {
+        return CloudFormsPayload.readManifestVersion(cloudFormsDocument);
     }
 }
@@ -0,0 +1,67 @@
+package org.jboss.xavier.integrations.migrationanalytics.business;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.xavier.integrations.migrationanalytics.business.indexing.InventoryIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * CloudForms payload parsed only once per file, with its manifest version already resolved,
+ * so that it can be shared by all the {@link Calculator} implementations.
+ */
+@Slf4j
+public class CloudFormsPayload {
+    private static final String MANIFEST_VERSION_PATH = "$.manifest.manifest.version";
+    private static final String FALLBACK_MANIFEST_VERSION = "0";
+
+    private final DocumentContext document;
+    private final String manifestVersion;
+    private final InventoryIndex inventoryIndex;
+
+    public CloudFormsPayload(DocumentContext document, String manifestVersion) {
+        this.document = document;
+        this.manifestVersion = manifestVersion;
+        this.inventoryIndex = new InventoryIndex(document);
+    }
+
+    public static CloudFormsPayload parse(String cloudFormsJson) {
+        return parse(new ByteArrayInputStream(cloudFormsJson.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static CloudFormsPayload parse(InputStream cloudFormsJson) {
+        return parse(cloudFormsJson, CloudFormsPayload::readManifestVersion);
+    }
+
+    public static CloudFormsPayload parse(InputStream cloudFormsJson, Function<DocumentContext, String> manifestVersionReader) {
+        long start = System.currentTimeMillis();
+        DocumentContext document = JsonPath.parse(cloudFormsJson);
+        log.debug("CloudForms payload parsed in {} ms", System.currentTimeMillis() - start);
+        return new CloudFormsPayload(document, manifestVersionReader.apply(document));
+    }
+
+    // It will try to extract the version of the payload from the JSON file, falling back to v1
+    public static String readManifestVersion(DocumentContext document) {
+        try {
+            return document.read(MANIFEST_VERSION_PATH, String.class).replace(".", "_");
+        } catch (Exception e) {
+            return FALLBACK_MANIFEST_VERSION;
+        }
+    }
+
+    public DocumentContext getDocument() {
+        return document;
+    }
+
+    public String getManifestVersion() {
+        return manifestVersion;
+    }
+
+    public InventoryIndex getInventoryIndex() {
+        return inventoryIndex;
+    }
+}
@@ -1,6 +1,6 @@
 package org.jboss.xavier.integrations.migrationanalytics.business;
 
-import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.DocumentContext;
 import net.minidev.json.JSONArray;
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.xavier.analytics.pojo.input.UploadFormInputDataModel;
@@ -47,8 +47,9 @@ public class ParamsCalculator implements Calculator<UploadFormInputDataModel> {
     }
 
     @Override
-    public UploadFormInputDataModel calculate(String cloudFormsJson, Map<String, Object> headers) {
-        String payloadVersion = getManifestVersion(cloudFormsJson);
+    public UploadFormInputDataModel calculateFromPayload(CloudFormsPayload cloudFormsPayload, Map<String, Object> headers) {
+        String payloadVersion = cloudFormsPayload.getManifestVersion();
+        DocumentContext cloudFormsDocument = cloudFormsPayload.getDocument();
 
         String hypervisorPath = manifestVersionService.getPropertyWithFallbackVersion(payloadVersion, "hypervisor");
         String cpuTotalCoresPath = manifestVersionService.getPropertyWithFallbackVersion(payloadVersion, "hypervisor.cpuTotalCoresPath");
@@ -56,13 +57,13 @@ public class ParamsCalculator implements Calculator<UploadFormInputDataModel> {
         String totalSpacePath = manifestVersionService.getPropertyWithFallbackVersion(payloadVersion, "totalSpacePath");
 
         // Calculations
-        Integer numberofhypervisors = ((JSONArray) JsonPath.read(cloudFormsJson, hypervisorPath))
+        Integer numberofhypervisors = ((JSONArray) cloudFormsDocument.read(hypervisorPath))
                 .stream()
                 .map(e -> calculateHypervisors((Map) e, cpuTotalCoresPath, cpuCoresPerSocketPath, headers.get(RouteBuilderExceptionHandler.ANALYSIS_ID).toString()))
                 .filter(Objects::nonNull)
                 .mapToInt(Integer::intValue)
                 .sum();
-        Long totalspace = ((List<Number>) JsonPath.parse(cloudFormsJson).read(totalSpacePath)).stream().mapToLong(Number::longValue).sum();
+        Long totalspace = ((List<Number>) cloudFormsDocument.read(totalSpacePath)).stream().mapToLong(Number::longValue).sum();
 
 
         // User properties
@@ -1,57 +1,141 @@
 package org.jboss.xavier.integrations.migrationanalytics.business;
 
-import com.jayway.jsonpath.JsonPath;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.xavier.analytics.pojo.input.workload.inventory.VMWorkloadInventoryModel;
 import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
-import org.springframework.beans.factory.config.ConfigurableBeanFactory;
-import org.springframework.context.annotation.Scope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Component
-@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
 public class VMWorkloadInventoryCalculator extends AbstractVMWorkloadInventoryCalculator implements Calculator<Collection<VMWorkloadInventoryModel>> {
+    @Value("${vmworkloadinventory.parallelism:0}")
+    private int parallelism;
+
+    @Value("${vmworkloadinventory.streaming.queueSize:1000}")
+    private int streamingQueueSize;
+
+    // how long the extraction waits for the consumer to take a VM before considering the iterator abandoned
+    @Value("${vmworkloadinventory.streaming.handOffTimeout:600000}")
+    private long streamingHandOffTimeout;
+
+    private ForkJoinPool forkJoinPool;
+
+    // threads handing the streamed models over to the consumers, the only ones allowed to block on the queue
+    private ExecutorService streamingExecutorService;
+
+    @PostConstruct
+    public void init() {
+        forkJoinPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        streamingExecutorService = Executors.newCachedThreadPool(new CustomizableThreadFactory("VMWorkloadInventoryStreaming-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        streamingExecutorService.shutdownNow();
+        forkJoinPool.shutdown();
+    }
+
     @Override
-    public Collection<VMWorkloadInventoryModel> calculate(String cloudFormsJson, Map<String, Object> headers) {
-
-        manifestVersion = getManifestVersion(cloudFormsJson);
-        jsonParsed = JsonPath.parse(cloudFormsJson);
-        scanRunDate = getScanRunDate();
-
-        List<Map> vmList = readListValuesFromExpandedEnvVarPath(VMPATH, null);
-
-        List<VMWorkloadInventoryModel> vmWorkloadInventoryModels = vmList.stream()
-                .peek(e -> {
-                    e.put("_analysisId", headers.get(RouteBuilderExceptionHandler.ANALYSIS_ID).toString());
-                    e.put("vmEmsCluster", readValueFromExpandedEnvVarPath(VMEMSCLUSTERPATH, e));
-                    e.put("ems_cluster_id", readValueFromExpandedEnvVarPath(EMSCLUSTERIDPATH, e));
-                })
-                .peek(e -> {
-                    if (log.isDebugEnabled()) {
-                        log.debug("------- Treating Analysis {} VM :{} from {} : ", headers.get(RouteBuilderExceptionHandler.ANALYSIS_ID).toString(), vmList.indexOf(e), vmList.size());
-                    }
-                })
-                .map(this::createVMWorkloadInventoryModel)
-                .collect(Collectors.toList());
-        log.info(" Instance AnalysisID {} VMs parsed {} vs VMs calculated {}", headers.get(RouteBuilderExceptionHandler.ANALYSIS_ID).toString(), vmList.size(), vmWorkloadInventoryModels.size());
+    public Collection<VMWorkloadInventoryModel> calculateFromPayload(CloudFormsPayload cloudFormsPayload, Map<String, Object> headers) {
+        CalculationContext context = createContext(cloudFormsPayload, headers);
+
+        List<Map> vmList = readListValuesFromExpandedEnvVarPath(context, VMPATH, null);
+
+        List<VMWorkloadInventoryModel> vmWorkloadInventoryModels;
+        try {
+            vmWorkloadInventoryModels = forkJoinPool.submit(() -> vmList.parallelStream()
+                    .map(vm -> createVMWorkloadInventoryModel(context, vm))
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating the VMs of Analysis " + context.getAnalysisId(), e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+        log.info(" Instance AnalysisID {} VMs parsed {} vs VMs calculated {}", context.getAnalysisId(), vmList.size(), vmWorkloadInventoryModels.size());
 
         return vmWorkloadInventoryModels;
     }
 
-    private Date getScanRunDate() {
+    /**
+     * Streaming variant of {@link #calculateFromPayload(CloudFormsPayload, Map)}: the VMs are extracted in the background
+     * and the returned iterator hands out each model, in the order of the VMs in the payload, as soon as it's been calculated.
+     * The iterator is {@link Closeable} so that closing it before the end (e.g. a failed split) stops the extraction,
+     * which is anyhow stopped, failing the iterator, if no VM is taken within the hand-off timeout.
+     */
+    public Iterator<VMWorkloadInventoryModel> calculateStreaming(CloudFormsPayload cloudFormsPayload, Map<String, Object> headers) {
+        CalculationContext context = createContext(cloudFormsPayload, headers);
+
+        List<Map> vmList = readListValuesFromExpandedEnvVarPath(context, VMPATH, null);
+
+        ModelsIterator modelsIterator = new ModelsIterator(streamingQueueSize, streamingHandOffTimeout);
+        streamingExecutorService.execute(() -> {
+            try {
+                // the models are calculated concurrently on the pool, a few VMs ahead, while they're handed out in order from here
+                int maxInFlight = forkJoinPool.getParallelism() * 2;
+                Deque<CompletableFuture<VMWorkloadInventoryModel>> inFlight = new ArrayDeque<>(maxInFlight);
+                for (Map vm : vmList) {
+                    inFlight.add(CompletableFuture.supplyAsync(() -> createVMWorkloadInventoryModel(context, vm), forkJoinPool));
+                    if (inFlight.size() >= maxInFlight) {
+                        modelsIterator.put(inFlight.poll().join());
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    modelsIterator.put(inFlight.poll().join());
+                }
+                log.info(" Instance AnalysisID {} VMs parsed {} vs VMs calculated {}", context.getAnalysisId(), vmList.size(), modelsIterator.getCount());
+                modelsIterator.complete();
+            } catch (CancellationException e) {
+                log.warn(" Instance AnalysisID {} VM extraction stopped: {}", context.getAnalysisId(), e.getMessage());
+            } catch (CompletionException e) {
+                modelsIterator.fail(e.getCause());
+            } catch (Throwable e) {
+                modelsIterator.fail(e);
+            }
+        });
+        return modelsIterator;
+    }
+
+    private CalculationContext createContext(CloudFormsPayload cloudFormsPayload, Map<String, Object> headers) {
+        CalculationContext initialContext = new CalculationContext(cloudFormsPayload, headers.get(RouteBuilderExceptionHandler.ANALYSIS_ID).toString());
+        return initialContext.withScanRunDate(getScanRunDate(initialContext));
+    }
+
+    private Date getScanRunDate(CalculationContext context) {
         Date scanrundate;
         try {
-            scanrundate = new SimpleDateFormat("yyyy-M-dd'T'hh:mm:ss.S").parse(readValueFromExpandedEnvVarPath(DATACOLLECTEDON, null));
+            scanrundate = new SimpleDateFormat("yyyy-M-dd'T'hh:mm:ss.S").parse(readValueFromExpandedEnvVarPath(context, DATACOLLECTEDON, null));
         } catch (Exception e) {
             scanrundate = new Date();
             log.warn("Using now date as fallback for Scan Run Date");
@@ -59,49 +143,157 @@ public class VMWorkloadInventoryCalculator extends AbstractVMWorkloadInventoryCa
         return scanrundate;
     }
 
-    private VMWorkloadInventoryModel createVMWorkloadInventoryModel(Map vmStructMap) {
+    private VMWorkloadInventoryModel createVMWorkloadInventoryModel(CalculationContext context, Map vm) {
+        log.debug("------- Treating Analysis {} VM : {}", context.getAnalysisId(), vm.get("name"));
+
+        // the VMs of the parsed document are shared so the params calculated for this VM go in its own map
+        Map<String, Object> vmStructMap = new HashMap<>(vm);
+        vmStructMap.put("vmEmsCluster", readValueFromExpandedEnvVarPath(context, VMEMSCLUSTERPATH, vmStructMap));
+        vmStructMap.put("ems_cluster_id", readValueFromExpandedEnvVarPath(context, EMSCLUSTERIDPATH, vmStructMap));
+
         VMWorkloadInventoryModel model = new VMWorkloadInventoryModel();
-        model.setProvider(readValueFromExpandedEnvVarPath(PROVIDERPATH, vmStructMap));
+        model.setProvider(readValueFromExpandedEnvVarPath(context, PROVIDERPATH, vmStructMap));
 
-        model.setDatacenter(readValueFromExpandedEnvVarPath(DATACENTERPATH, vmStructMap));
+        model.setDatacenter(readValueFromExpandedEnvVarPath(context, DATACENTERPATH, vmStructMap));
 
-        model.setCluster(readValueFromExpandedEnvVarPath(CLUSTERPATH, vmStructMap));
+        model.setCluster(readValueFromExpandedEnvVarPath(context, CLUSTERPATH, vmStructMap));
 
-        model.setVmName(readValueFromExpandedEnvVarPath(VMNAMEPATH, vmStructMap ));
-        model.setMemory(readValueFromExpandedEnvVarPath(RAMSIZEINBYTES, vmStructMap, Long.class));
+        model.setVmName(readValueFromExpandedEnvVarPath(context, VMNAMEPATH, vmStructMap ));
+        model.setMemory(readValueFromExpandedEnvVarPath(context, RAMSIZEINBYTES, vmStructMap, Long.class));
 
-        Integer numCPU = readValueFromExpandedEnvVarPath(NUMCPUPATH, vmStructMap, Integer.class);
-        Integer numCORES = readValueFromExpandedEnvVarPath(NUMCORESPERSOCKETPATH, vmStructMap, Integer.class);
+        Integer numCPU = readValueFromExpandedEnvVarPath(context, NUMCPUPATH, vmStructMap, Integer.class);
+        Integer numCORES = readValueFromExpandedEnvVarPath(context, NUMCORESPERSOCKETPATH, vmStructMap, Integer.class);
         if (numCPU != null && numCORES != null) {
             model.setCpuCores(numCORES > 0 ? (numCPU / numCORES) : 0);
         } else {
-            analysisIssuesHandler.record(vmStructMap.get("_analysisId").toString(), "VM", vmStructMap.get("name").toString(), getExpandedPath(NUMCORESPERSOCKETPATH, vmStructMap), "CpuCores could not be calculated.");
+            recordIssue(context, NUMCORESPERSOCKETPATH, vmStructMap, "CpuCores could not be calculated.");
         }
 
-        model.setOsProductName(StringUtils.defaultIfEmpty(readValueFromExpandedEnvVarPath(PRODUCTNAMEPATH, vmStructMap), readValueFromExpandedEnvVarPath(PRODUCTNAME_FALLBACKPATH, vmStructMap )));
-        model.setGuestOSFullName(StringUtils.defaultIfEmpty(readValueFromExpandedEnvVarPath(GUESTOSFULLNAMEPATH, vmStructMap ), readValueFromExpandedEnvVarPath(GUESTOSFULLNAME_FALLBACKPATH, vmStructMap )));
-        Boolean hasRdmDisk = readValueFromExpandedEnvVarPath(HASRDMDISKPATH, vmStructMap);
+        model.setOsProductName(StringUtils.defaultIfEmpty(readValueFromExpandedEnvVarPath(context, PRODUCTNAMEPATH, vmStructMap), readValueFromExpandedEnvVarPath(context, PRODUCTNAME_FALLBACKPATH, vmStructMap )));
+        model.setGuestOSFullName(StringUtils.defaultIfEmpty(readValueFromExpandedEnvVarPath(context, GUESTOSFULLNAMEPATH, vmStructMap ), readValueFromExpandedEnvVarPath(context, GUESTOSFULLNAME_FALLBACKPATH, vmStructMap )));
+        Boolean hasRdmDisk = readValueFromExpandedEnvVarPath(context, HASRDMDISKPATH, vmStructMap);
         if (hasRdmDisk != null) {
             model.setHasRdmDisk(hasRdmDisk);
         }
 
-        List<Number> diskSpaceList = readListValuesFromExpandedEnvVarPath(DISKSIZEPATH, vmStructMap);
+        List<Number> diskSpaceList = readListValuesFromExpandedEnvVarPath(context, DISKSIZEPATH, vmStructMap);
         model.setDiskSpace(diskSpaceList.stream().filter(Objects::nonNull).mapToLong(Number::longValue).sum());
 
-        model.setNicsCount(readValueFromExpandedEnvVarPath(NICSPATH, vmStructMap, Integer.class));
+        model.setNicsCount(readValueFromExpandedEnvVarPath(context, NICSPATH, vmStructMap, Integer.class));
 
-        model.setFiles(readMapValuesFromExpandedEnvVarPath(FILESCONTENTPATH, vmStructMap, getExpandedPath(FILESCONTENTPATH_FILENAME, vmStructMap), getExpandedPath(FILESCONTENTPATH_CONTENTS, vmStructMap)));
-        model.setSystemServicesNames(readListValuesFromExpandedEnvVarPath(SYSTEMSERVICESNAMESPATH, vmStructMap));
-        model.setVmDiskFilenames(readListValuesFromExpandedEnvVarPath(VMDISKSFILENAMESPATH, vmStructMap));
+        model.setFiles(readMapValuesFromExpandedEnvVarPath(context, FILESCONTENTPATH, vmStructMap, getExpandedPath(context, FILESCONTENTPATH_FILENAME, vmStructMap), getExpandedPath(context, FILESCONTENTPATH_CONTENTS, vmStructMap)));
+        model.setSystemServicesNames(readListValuesFromExpandedEnvVarPath(context, SYSTEMSERVICESNAMESPATH, vmStructMap));
+        model.setVmDiskFilenames(readListValuesFromExpandedEnvVarPath(context, VMDISKSFILENAMESPATH, vmStructMap));
 
-        model.setProduct(readValueFromExpandedEnvVarPath(PRODUCTPATH, vmStructMap));
-        model.setVersion(readValueFromExpandedEnvVarPath(VERSIONPATH, vmStructMap));
-        model.setHost_name(readValueFromExpandedEnvVarPath(HOSTNAMEPATH, vmStructMap));
+        model.setProduct(readValueFromExpandedEnvVarPath(context, PRODUCTPATH, vmStructMap));
+        model.setVersion(readValueFromExpandedEnvVarPath(context, VERSIONPATH, vmStructMap));
+        model.setHost_name(readValueFromExpandedEnvVarPath(context, HOSTNAMEPATH, vmStructMap));
 
-        model.setScanRunDate(scanRunDate);
+        model.setScanRunDate(context.getScanRunDate());
 
-        model.setAnalysisId(Long.parseLong(vmStructMap.get("_analysisId").toString()));
+        model.setAnalysisId(Long.parseLong(context.getAnalysisId()));
 
         return model;
     }
+
+    /**
+     * Bounded hand-off between the threads extracting the VMs and the one consuming them,
+     * so that a slow consumer holds back the extraction instead of piling up the models in memory.
+     * The extraction gives up once the iterator is closed or if the consumer doesn't take any model within the timeout.
+     */
+    private static class ModelsIterator implements Iterator<VMWorkloadInventoryModel>, Closeable {
+        private static final Object END = new Object();
+        private static final long POLL_INTERVAL = 100;
+
+        private final BlockingQueue<Object> queue;
+        private final long handOffTimeout;
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile boolean closed;
+        private volatile RuntimeException abandoned;
+        private Object next;
+
+        ModelsIterator(int capacity, long handOffTimeout) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+            this.handOffTimeout = handOffTimeout;
+        }
+
+        void put(VMWorkloadInventoryModel model) {
+            offer(model);
+            count.incrementAndGet();
+        }
+
+        void complete() {
+            offer(END);
+        }
+
+        void fail(Throwable e) {
+            if (closed || abandoned != null) return;
+            try {
+                offer(new Failure(e));
+            } catch (CancellationException cancelled) {
+                // nobody is waiting for the outcome anymore
+            }
+        }
+
+        int getCount() {
+            return count.get();
+        }
+
+        private void offer(Object element) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(handOffTimeout);
+            try {
+                while (!queue.offer(element, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    if (closed) throw new CancellationException("VM extraction cancelled");
+                    if (System.nanoTime() - deadline >= 0) {
+                        abandoned = new IllegalStateException("No VM taken within " + handOffTimeout + " ms, VM extraction abandoned");
+                        throw new CancellationException(abandoned.getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("VM extraction interrupted");
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    if (closed) return false;
+                    if (abandoned != null) throw abandoned;
+                    next = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the VMs to be calculated", e);
+            }
+            if (next instanceof Failure) {
+                Throwable cause = ((Failure) next).cause;
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            }
+            return next != END;
+        }
+
+        @Override
+        public VMWorkloadInventoryModel next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            VMWorkloadInventoryModel model = (VMWorkloadInventoryModel) next;
+            next = null;
+            return model;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        private static class Failure {
+            final Throwable cause;
+
+            Failure(Throwable cause) {
+                this.cause = cause;
+            }
+        }
+    }
 }
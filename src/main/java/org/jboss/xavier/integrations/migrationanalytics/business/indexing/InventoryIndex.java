@@ -0,0 +1,223 @@
+package org.jboss.xavier.integrations.migrationanalytics.business.indexing;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Hash indexes over a parsed CloudForms document used to resolve the versioned
+ * "filter by placeholder" paths (e.g. <code>vms[?(@.id == {id})].name</code>) with
+ * a lookup instead of scanning the whole document for every VM.
+ *
+ * The indexes are derived from the paths themselves, so they follow whatever layout
+ * the manifest version mappings describe: VMs by id, hosts by ems_ref (1_0_0) or id (0),
+ * ems_clusters by ems_ref (1_0_0) or id (0) and providers by the id of their VMs.
+ * Each index is built the first time a path needs it, walking its collection only once.
+ * Paths that don't follow that shape are evaluated against the document as before.
+ *
+ * Keys are indexed by type and value so that a lookup matches what the JsonPath <code>==</code> filter would:
+ * a number equals a string holding the same integer, but never a boolean.
+ * Whenever that can't be told for sure (decimal keys, literals JsonPath may parse differently)
+ * the path is evaluated against the document.
+ *
+ * @see PathTemplate
+ */
+public class InventoryIndex {
+    private static final Pattern INTEGER_LITERAL_PATTERN = Pattern.compile("-?\\d+");
+
+    private final DocumentContext document;
+    private final Configuration configuration;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    public InventoryIndex(DocumentContext document) {
+        this.document = document;
+        this.configuration = document.configuration();
+    }
+
+    public DocumentContext getDocument() {
+        return document;
+    }
+
+    /**
+     * Reads the value for the (not expanded) path, binding its placeholders with the given params.
+     * Indexed paths return the list of matches, the same way JsonPath does with indefinite paths.
+     */
+    public Object read(String path, Map params) {
+        return read(PathTemplate.compile(path), params);
+    }
+
+    public Object read(PathTemplate template, Map params) {
+        if (!template.hasPlaceholders()) {
+            return template.getJsonPath().read(document.json(), configuration);
+        }
+        PathTemplate.Filter filter = template.getFilter();
+        if (filter == null || params == null) {
+            return document.read(template.expand(params));
+        }
+        return read(template, filter, params);
+    }
+
+    public static String expandParams(String path, Map params) {
+        return PathTemplate.compile(path).expand(params);
+    }
+
+    private Object read(PathTemplate template, PathTemplate.Filter filter, Map params) {
+        Index index = getIndex(filter);
+        List<Object> keys = index.isComparable() ? getKeys(PathTemplate.getParam(params, filter.param), filter.quoted) : null;
+        if (keys == null) {
+            return document.read(template.expand(params));
+        }
+
+        List<Object> values = new ArrayList<>();
+        for (Object match : index.get(keys)) {
+            try {
+                Object value = filter.suffix.read(match, configuration);
+                if (!filter.suffix.isDefinite() && value instanceof Collection) {
+                    values.addAll((Collection<?>) value);
+                } else {
+                    values.add(value);
+                }
+            } catch (PathNotFoundException e) {
+                // JsonPath skips the matches missing the leaf in indefinite paths
+            }
+        }
+        return values;
+    }
+
+    private Index getIndex(PathTemplate.Filter filter) {
+        return indexes.computeIfAbsent(filter.indexName, name -> buildIndex(filter));
+    }
+
+    private Index buildIndex(PathTemplate.Filter filter) {
+        Index index = new Index(readCollection(filter.collection));
+        for (int position = 0; position < index.elements.size(); position++) {
+            Object element = index.elements.get(position);
+            if (!(element instanceof Map)) continue;
+
+            if (filter.child == null) {
+                index.add(((Map) element).get(filter.key), position);
+            } else {
+                Object children = ((Map) element).get(filter.child);
+                if (children instanceof Collection) {
+                    for (Object child : (Collection<?>) children) {
+                        if (child instanceof Map) {
+                            index.add(((Map) child).get(filter.key), position);
+                        }
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the index keys the value bound to the filter equals according to JsonPath,
+     * or null when they can't be told without evaluating the filter
+     */
+    static List<Object> getKeys(String value, boolean quoted) {
+        if (quoted) {
+            // the value is the content of a string literal, which ends at the first quote
+            if (value.indexOf('"') >= 0 || value.indexOf('\\') >= 0) return null;
+
+            BigDecimal number = toNumber(value);
+            if (number == null) return Collections.singletonList(value);
+            return number.scale() == 0 ? Arrays.asList(value, number.toBigIntegerExact()) : null;
+        }
+        if ("true".equals(value) || "false".equals(value)) {
+            return Collections.singletonList(Boolean.valueOf(value));
+        }
+        if (INTEGER_LITERAL_PATTERN.matcher(value).matches()) {
+            BigInteger number = new BigInteger(value);
+            return Arrays.asList(number, number.toString());
+        }
+        return null;
+    }
+
+    private static BigDecimal toNumber(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private List<Object> readCollection(String collectionPath) {
+        Object value;
+        try {
+            value = document.read(collectionPath);
+        } catch (PathNotFoundException e) {
+            return Collections.emptyList();
+        }
+
+        List<Object> elements = new ArrayList<>();
+        if (value instanceof Collection) {
+            // indefinite collection paths (e.g. providers[*].vms) give back one array per match
+            for (Object item : (Collection<?>) value) {
+                if (item instanceof Collection) {
+                    elements.addAll((Collection<?>) item);
+                } else {
+                    elements.add(item);
+                }
+            }
+        } else if (value != null) {
+            elements.add(value);
+        }
+        return elements;
+    }
+
+    private static class Index {
+        private final List<Object> elements;
+        private final Map<Object, SortedSet<Integer>> positionsByKey = new HashMap<>();
+        private boolean comparable = true;
+
+        private Index(List<Object> elements) {
+            this.elements = elements;
+        }
+
+        private void add(Object key, int position) {
+            if (key instanceof String || key instanceof Boolean || key instanceof BigInteger) {
+                positionsByKey.computeIfAbsent(key, k -> new TreeSet<>()).add(position);
+            } else if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+                positionsByKey.computeIfAbsent(BigInteger.valueOf(((Number) key).longValue()), k -> new TreeSet<>()).add(position);
+            } else if (key instanceof Number) {
+                // how JsonPath compares decimals depends on their scale
+                comparable = false;
+            }
+            // null and JSON structures never equal a literal
+        }
+
+        private boolean isComparable() {
+            return comparable;
+        }
+
+        /**
+         * @return the elements matching any of the keys, in document order
+         */
+        private List<Object> get(List<Object> keys) {
+            SortedSet<Integer> positions = new TreeSet<>();
+            for (Object key : keys) {
+                positions.addAll(positionsByKey.getOrDefault(key, Collections.emptySortedSet()));
+            }
+
+            List<Object> matches = new ArrayList<>(positions.size());
+            for (Integer position : positions) {
+                matches.add(elements.get(position));
+            }
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.jboss.xavier.integrations.migrationanalytics.business.indexing;
+
+import com.jayway.jsonpath.JsonPath;
+import org.jboss.xavier.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A versioned JSONPath with <code>{param}</code> placeholders compiled once, independently from the documents
+ * it will be evaluated against.
+ *
+ * Paths filtering a collection by a placeholder (e.g. <code>vms[?(@.id == {id})].name</code>) are split into
+ * the filter, bound to the params through the {@link InventoryIndex}, and the compiled suffix.
+ * Paths without placeholders are compiled as they are, while any other path keeps its literal
+ * parts so that it can be expanded without parsing it again.
+ * Compiled templates are shared by all the calculators through a bounded cache.
+ */
+public class PathTemplate {
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{[a-zA-Z1-9_]+\\}");
+
+    // <collection>[?(@.<key> == {param})]<suffix>
+    private static final Pattern FILTER_PATH_PATTERN = Pattern.compile("^(?<collection>[^{?]+)\\[\\?\\(\\s*@\\.(?<key>\\w+)\\s*==\\s*(?<param>\"?\\{\\w+\\}\"?)\\s*\\)\\](?<suffix>[^{]*)$");
+
+    // <collection>[?(@.<child>[?(@.<key> == {param})])]<suffix>
+    private static final Pattern NESTED_FILTER_PATH_PATTERN = Pattern.compile("^(?<collection>[^{?]+)\\[\\?\\(\\s*@\\.(?<child>\\w+)\\[\\?\\(\\s*@\\.(?<key>\\w+)\\s*==\\s*(?<param>\"?\\{\\w+\\}\"?)\\s*\\)\\]\\s*\\)\\](?<suffix>[^{]*)$");
+
+    // templates come from the manifest mappings so, once they're all compiled, no more are expected
+    private static final int MAX_CACHED_TEMPLATES = 512;
+    private static final LruCache<String, PathTemplate> CACHE = new LruCache<>(MAX_CACHED_TEMPLATES);
+
+    private final String path;
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> placeholders = new ArrayList<>();
+    private final JsonPath jsonPath;
+    private final Filter filter;
+
+    private PathTemplate(String path) {
+        this.path = path;
+
+        Matcher m = PLACEHOLDER_PATTERN.matcher(path);
+        int start = 0;
+        while (m.find()) {
+            literals.add(path.substring(start, m.start()));
+            placeholders.add(m.group().substring(1, m.group().length() - 1));
+            start = m.end();
+        }
+        literals.add(path.substring(start));
+
+        this.jsonPath = placeholders.isEmpty() ? JsonPath.compile(path) : null;
+        this.filter = placeholders.isEmpty() ? null : Filter.parse(path);
+    }
+
+    public static PathTemplate compile(String path) {
+        PathTemplate template = CACHE.get(path);
+        if (template == null) {
+            template = new PathTemplate(path);
+            CACHE.put(path, template);
+        }
+        return template;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean hasPlaceholders() {
+        return !placeholders.isEmpty();
+    }
+
+    /**
+     * @return the compiled path, available only for the paths without placeholders
+     */
+    JsonPath getJsonPath() {
+        return jsonPath;
+    }
+
+    /**
+     * @return the filter bound to the params, available only for the paths filtering a collection by a placeholder
+     */
+    Filter getFilter() {
+        return filter;
+    }
+
+    public String expand(Map params) {
+        if (params == null || placeholders.isEmpty()) return path;
+
+        StringBuilder expandedPath = new StringBuilder(path.length() + 16 * placeholders.size());
+        for (int i = 0; i < placeholders.size(); i++) {
+            expandedPath.append(literals.get(i)).append(getParam(params, placeholders.get(i)));
+        }
+        return expandedPath.append(literals.get(placeholders.size())).toString();
+    }
+
+    static String getParam(Map params, String key) {
+        Object value = params.get(key);
+        return value != null ? value.toString() : "";
+    }
+
+    static class Filter {
+        final String collection;
+        final String child;
+        final String key;
+        final String param;
+        final boolean quoted;
+        final JsonPath suffix;
+        final String indexName;
+
+        private Filter(String collection, String child, String key, String param, String suffix) {
+            this.collection = collection;
+            this.child = child;
+            this.key = key;
+            this.param = param.replaceAll("[\"{}]", "");
+            this.quoted = param.startsWith("\"");
+            this.suffix = JsonPath.compile("$" + suffix);
+            this.indexName = collection + "|" + (child != null ? child : "") + "|" + key;
+        }
+
+        private static Filter parse(String path) {
+            Matcher nested = NESTED_FILTER_PATH_PATTERN.matcher(path);
+            if (nested.matches()) {
+                return new Filter(nested.group("collection"), nested.group("child"), nested.group("key"), nested.group("param"), nested.group("suffix"));
+            }
+            Matcher filter = FILTER_PATH_PATTERN.matcher(path);
+            if (filter.matches()) {
+                return new Filter(filter.group("collection"), null, filter.group("key"), filter.group("param"), filter.group("suffix"));
+            }
+            return null;
+        }
+    }
+}
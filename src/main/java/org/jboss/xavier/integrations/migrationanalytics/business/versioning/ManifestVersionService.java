@@ -1,7 +1,7 @@
 package org.jboss.xavier.integrations.migrationanalytics.business.versioning;
 
 import lombok.Getter;
-import lombok.Setter;
+import org.jboss.xavier.utils.LruCache;
 import org.springframework.core.env.AbstractEnvironment;
 import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.core.env.Environment;
@@ -9,8 +9,12 @@ import org.springframework.core.env.Environment;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -20,41 +24,42 @@ import java.util.stream.StreamSupport;
 public class ManifestVersionService {
     protected static final String CLOUDFORMS_MANIFEST = "cloudforms.manifest.";
     protected static final String CLOUDFORMS_MANIFEST_PATTERN = CLOUDFORMS_MANIFEST + "[0-9_]*.";
+    private static final ManifestVersion NO_VERSION = new ManifestVersion("0_0_0");
+    // payload versions are read from the uploaded files so only the most recently used ones are kept
+    private static final int MAX_RESOLVED_PAYLOAD_VERSIONS = 64;
+
     @Inject
     private Environment env;
 
     @Getter
-    @Setter
     private Map<String, String> properties;
 
+    private volatile ResolutionTable resolutionTable = new ResolutionTable(Collections.emptyMap());
+
     @PostConstruct
     public void init() {
-        properties = getAllProperties();
+        setProperties(getAllProperties());
     }
 
-    public String getPropertyWithFallbackVersion(String payloadVersion, String path) {
-        String fallbackVersion = getFallbackVersionPath(payloadVersion, path);
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
+        rebuild();
+    }
 
-        return properties.get(CLOUDFORMS_MANIFEST + fallbackVersion + "." + path);
+    /**
+     * Rebuilds the table used to resolve the properties for each payload version.
+     * It has to be called if the properties are changed after the service has been initialized.
+     */
+    public void rebuild() {
+        resolutionTable = new ResolutionTable(properties);
     }
 
-    String getFallbackVersionPath(String payloadVersion, String path) {
-        ManifestVersion fallbackversion = properties.keySet()
-                .stream()
-                .filter(e -> e.matches(CLOUDFORMS_MANIFEST_PATTERN + path))
-                .map(e -> e.split("\\.")[2])
-                .map(this::expandVersion)
-                .map(ManifestVersion::new)
-                .sorted(Comparator.reverseOrder())
-                .filter(e -> isVersionEqualOrLower(payloadVersion, e))
-                .findFirst()
-                .orElse(new ManifestVersion("0_0_0"));
-
-        return fallbackversion.getFullVersion();
+    public String getPropertyWithFallbackVersion(String payloadVersion, String path) {
+        return resolutionTable.getProperties(payloadVersion).get(path);
     }
 
-    private boolean isVersionEqualOrLower(String payloadVersion, ManifestVersion e) {
-        return e.compareTo(expandVersion(payloadVersion)) <= 0;
+    String getFallbackVersionPath(String payloadVersion, String path) {
+        return resolutionTable.getFallbackVersion(new ManifestVersion(expandVersion(payloadVersion)), path).getFullVersion();
     }
 
     private Map<String, String> getAllProperties() {
@@ -74,4 +79,66 @@ public class ManifestVersionService {
     String expandVersion(String e) {
         return e.concat(IntStream.range(1, 4 - e.split("_").length).mapToObj(f -> "_0").collect(Collectors.joining()));
     }
+
+    private class ResolutionTable {
+        // for every path, the versions defining it sorted from the highest to the lowest one
+        private final Map<String, List<VersionedValue>> valuesByPath;
+        private final LruCache<String, Map<String, String>> propertiesByPayloadVersion = new LruCache<>(MAX_RESOLVED_PAYLOAD_VERSIONS);
+
+        private ResolutionTable(Map<String, String> properties) {
+            Map<String, List<VersionedValue>> values = new HashMap<>();
+            properties.forEach((key, value) -> {
+                if (!key.startsWith(CLOUDFORMS_MANIFEST)) return;
+
+                String versionAndPath = key.substring(CLOUDFORMS_MANIFEST.length());
+                int separator = versionAndPath.indexOf('.');
+                if (separator < 0) return;
+
+                String version = versionAndPath.substring(0, separator);
+                String path = versionAndPath.substring(separator + 1);
+                values.computeIfAbsent(path, k -> new ArrayList<>()).add(new VersionedValue(new ManifestVersion(expandVersion(version)), value));
+            });
+            values.replaceAll((path, versionedValues) -> {
+                versionedValues.sort(Comparator.comparing((VersionedValue e) -> e.version).reversed());
+                return Collections.unmodifiableList(versionedValues);
+            });
+            this.valuesByPath = Collections.unmodifiableMap(values);
+        }
+
+        private Map<String, String> getProperties(String payloadVersion) {
+            Map<String, String> resolved = propertiesByPayloadVersion.get(payloadVersion);
+            if (resolved == null) {
+                resolved = resolve(new ManifestVersion(expandVersion(payloadVersion)));
+                propertiesByPayloadVersion.put(payloadVersion, resolved);
+            }
+            return resolved;
+        }
+
+        private Map<String, String> resolve(ManifestVersion payloadVersion) {
+            Map<String, String> resolved = new HashMap<>();
+            valuesByPath.forEach((path, versionedValues) -> versionedValues.stream()
+                    .filter(e -> e.version.compareTo(payloadVersion) <= 0)
+                    .findFirst()
+                    .ifPresent(e -> resolved.put(path, e.value)));
+            return Collections.unmodifiableMap(resolved);
+        }
+
+        private ManifestVersion getFallbackVersion(ManifestVersion payloadVersion, String path) {
+            return valuesByPath.getOrDefault(path, Collections.emptyList()).stream()
+                    .map(e -> e.version)
+                    .filter(e -> e.compareTo(payloadVersion) <= 0)
+                    .findFirst()
+                    .orElse(NO_VERSION);
+        }
+    }
+
+    private static class VersionedValue {
+        private final ManifestVersion version;
+        private final String value;
+
+        private VersionedValue(ManifestVersion version, String value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
 }
@@ -5,40 +5,62 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.camel.Attachment;
 import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
 import org.apache.camel.Predicate;
 import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.StreamCache;
 import org.apache.camel.component.aws.s3.S3Constants;
+import org.apache.camel.converter.stream.CachedOutputStream;
 import org.apache.camel.dataformat.tarfile.TarSplitter;
 import org.apache.camel.dataformat.zipfile.ZipSplitter;
 import org.apache.camel.model.dataformat.JsonLibrary;
-import org.apache.camel.processor.aggregate.GroupedBodyAggregationStrategy;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.camel.util.FileUtil;
+import org.apache.camel.util.IOHelper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.jboss.xavier.analytics.pojo.PayloadDownloadLinkModel;
 import org.jboss.xavier.analytics.pojo.input.UploadFormInputDataModel;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.integrations.AnalysisStagesConfiguration;
+import org.jboss.xavier.integrations.jpa.service.CacheValidatorService;
 import org.jboss.xavier.integrations.jpa.service.UserService;
 import org.jboss.xavier.integrations.route.dataformat.CustomizedMultipartDataFormat;
+import org.jboss.xavier.integrations.route.dataformat.StreamCacheBody;
+import org.jboss.xavier.integrations.route.model.CacheValidator;
 import org.jboss.xavier.integrations.route.model.notification.FilePersistedNotification;
+import org.jboss.xavier.integrations.route.splitter.CachedEntriesSplitter;
+import org.jboss.xavier.integrations.route.stage.StageExecutor;
+import org.jboss.xavier.integrations.route.strategy.UploadFormInputDataModelAggregationStrategy;
+import org.jboss.xavier.utils.ETagUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.activation.DataHandler;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 import static org.apache.camel.builder.PredicateBuilder.not;
 
@@ -72,15 +94,48 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
     @Value("${s3.download.link.expiration}")
     private String s3DownloadLinkExpiration;
 
+    @Value("${upload.spool.threshold:1048576}")
+    private int uploadSpoolThreshold;
+
+    @Value("${upload.spool.directory:${java.io.tmpdir}}")
+    private File uploadSpoolDirectory;
+
+    @Value("${download.spool.directory:${java.io.tmpdir}}")
+    private File downloadSpoolDirectory;
+
+    @Value("${parallel.archive.entries:true}")
+    private boolean parallelArchiveEntries;
+
+    @Value("${parallel.archive.entries.poolSize:4}")
+    private int archiveEntriesPoolSize;
+
+    private ExecutorService archiveEntriesExecutorService;
+
+    // available only when parallel.analysis.stages is enabled, otherwise the stages run on the calling thread
+    @Autowired(required = false)
+    @Qualifier(AnalysisStagesConfiguration.ANALYSIS_STAGES_EXECUTOR_SERVICE)
+    private ExecutorService analysisStagesExecutorService;
+
+    @Inject
+    private ProducerTemplate producerTemplate;
+
     @Inject
     private UserService userService;
 
+    @Inject
+    private CacheValidatorService cacheValidatorService;
+
+    @Inject
+    private ETagUtils eTagUtils;
+
     private List<Integer> httpSuccessCodes = Arrays.asList(HttpStatus.SC_OK, HttpStatus.SC_CREATED, HttpStatus.SC_ACCEPTED, HttpStatus.SC_NO_CONTENT);
 
     public void configure() throws Exception {
         super.configure();
 
         getContext().setTracing(tracingEnabled);
+        // a thread pool configured on a split implies parallel processing so it's created only when enabled
+        archiveEntriesExecutorService = parallelArchiveEntries ? getContext().getExecutorServiceManager().newFixedThreadPool(this, "ArchiveEntries", archiveEntriesPoolSize) : null;
 
         from("rest:post:/upload?consumes=multipart/form-data")
                 .routeId("rest-upload")
@@ -88,7 +143,7 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .to("direct:upload");
 
         from("direct:upload").routeId("direct-upload")
-                .unmarshal(new CustomizedMultipartDataFormat())
+                .unmarshal(new CustomizedMultipartDataFormat(uploadSpoolThreshold, uploadSpoolDirectory))
                 .choice()
                     .when(isAllExpectedParamsExist())
                         .split()
@@ -113,7 +168,7 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 });
 
         from("direct:store").routeId("direct-store")
-                .convertBodyTo(byte[].class) // we need this to fully read the stream and close it
+                .process(this::cacheUploadedFile) // we need this to fully read the stream and close it
                 .to("direct:analysis-model")
                 .to("direct:insights");
 
@@ -152,12 +207,12 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .end();
 
         from("direct:process-file").routeId("process-file")
-                .convertBodyTo(byte[].class)
+                .process(this::spoolDownloadedFile)
                 .multicast()
                 .to("direct:store-in-s3", "direct:unzip-file");
 
         from("direct:store-in-s3").routeId("store-in-s3")
-                .setHeader(S3Constants.CONTENT_LENGTH, simple("${header.${type:org.apache.camel.Exchange.CONTENT_LENGTH}}"))
+                .setHeader(S3Constants.CONTENT_LENGTH, simple("${header.${type:org.apache.camel.Exchange.FILE_LENGTH}}"))
                 .process(e-> e.getIn().setHeader(S3Constants.KEY, UUID.randomUUID().toString())).id("set-s3-key")
                 .setHeader(S3Constants.CONTENT_DISPOSITION, simple("attachment;filename=\"${header.MA_metadata[filename]}\""))
                 .to("aws-s3:{{S3_BUCKET}}?amazonS3Client=#s3client&deleteAfterWrite=false").id("s3-call")
@@ -211,14 +266,14 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .routeId("unzip-file")
                 .choice()
                     .when(isZippedFile("zip"))
-                        .split(new ZipSplitter()).aggregationStrategy(this::calculateICSAggregated)
-                        .streaming()
+                        .split(archiveEntries(new ZipSplitter())).aggregationStrategy(new UploadFormInputDataModelAggregationStrategy())
+                        .streaming().parallelProcessing(parallelArchiveEntries).executorService(archiveEntriesExecutorService)
                         .to("direct:calculate")
                     .endChoice()
                     .when(isZippedFile("tar.gz"))
-                        .unmarshal().gzip()
-                        .split(new TarSplitter()).aggregationStrategy(this::calculateICSAggregated)
-                            .streaming()
+                        .process(exchange -> exchange.getIn().setBody(new GZIPInputStream(exchange.getIn().getMandatoryBody(InputStream.class))))
+                        .split(archiveEntries(new TarSplitter())).aggregationStrategy(new UploadFormInputDataModelAggregationStrategy())
+                            .streaming().parallelProcessing(parallelArchiveEntries).executorService(archiveEntriesExecutorService)
                             .to("direct:calculate")
                         .end()
                     .endChoice()
@@ -232,10 +287,8 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .to("direct:calculate-workloadsummaryreportmodel");
 
         from("direct:calculate").routeId("calculate")
-                .convertBodyTo(String.class)
-                .multicast().aggregationStrategy(new GroupedBodyAggregationStrategy())
-                    .to("direct:calculate-costsavings", "direct:calculate-vmworkloadinventory", "direct:flags-shared-disks")
-                .setBody(e -> e.getIn().getBody(List.class).get(0))
+                .process(this::parseCloudFormsPayload)
+                .process(analysisStages())
                 .end();
 
 
@@ -246,7 +299,8 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .end();
 
         from("direct:calculate-costsavings").routeId("calculate-costsavings")
-                .transform().method("calculator", "calculate(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})")
+                .process(this::parseCloudFormsPayload)
+                .transform().method("calculator", "calculateFromPayload(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})")
                 .end();
 
         from("direct:check-authenticated-request")
@@ -265,6 +319,24 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                     })
                     .to("direct:request-forbidden");
 
+        // the GET requests are answered with "304 Not Modified" before any report is read if the client's copy is still valid
+        from("direct:check-not-modified")
+                .routeId("check-not-modified")
+                .process(exchange -> {
+                    CacheValidator cacheValidator = cacheValidatorService.findByOwnerAndPath(exchange.getIn().getHeader(USERNAME, String.class),
+                            exchange.getIn().getHeader("CamelServletContextPath", String.class),
+                            exchange.getIn().getHeader(Exchange.HTTP_QUERY, String.class));
+                    if (cacheValidator == null) return;
+
+                    exchange.getIn().setHeader(ETAG, cacheValidator.getETag());
+                    exchange.getIn().setHeader(CACHE_CONTROL, cacheValidator.getCacheControl());
+                    if (eTagUtils.isNotModified(exchange.getIn().getHeader("If-None-Match", String.class), cacheValidator.getETag())) {
+                        exchange.getIn().setBody(null);
+                        exchange.getIn().setHeader(Exchange.HTTP_RESPONSE_CODE, HttpServletResponse.SC_NOT_MODIFIED);
+                        exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
+                    }
+                });
+
         from("direct:add-username-header")
                 .routeId("add-username-header")
                 .process(exchange ->  {
@@ -281,13 +353,18 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
                 .process(httpError404());
     }
 
-    private Exchange calculateICSAggregated(Exchange old, Exchange neu) {
-            UploadFormInputDataModel newObj = (UploadFormInputDataModel) neu.getIn().getBody(List.class).get(0);
-            UploadFormInputDataModel oldObj = (old != null) ? old.getIn().getHeader(UPLOADFORMDATA, UploadFormInputDataModel.class) : null;
-            newObj.setTotalDiskSpace(newObj.getTotalDiskSpace() + ((oldObj != null) ? oldObj.getTotalDiskSpace() : 0));
-            newObj.setHypervisor(newObj.getHypervisor() + ((oldObj != null) ? oldObj.getHypervisor() : 0));
-            neu.getIn().getHeaders().put(UPLOADFORMDATA, newObj);
-        return neu;
+    // entries are cached while the archive is read only when they have to be handed to other threads
+    private Expression archiveEntries(Expression archiveSplitter) {
+        return parallelArchiveEntries ? new CachedEntriesSplitter(archiveSplitter) : archiveSplitter;
+    }
+
+    // the ICS and the WIRs are calculated concurrently while the shared disks need the persisted WIRs
+    private StageExecutor analysisStages() {
+        Executor executor = analysisStagesExecutorService != null ? analysisStagesExecutorService : Runnable::run;
+        return new StageExecutor(producerTemplate, executor)
+                .stage("costsavings", "direct:calculate-costsavings")
+                .stage("vmworkloadinventory", "direct:calculate-vmworkloadinventory")
+                .stage("flags-shared-disks", "direct:flags-shared-disks", "vmworkloadinventory");
     }
 
     private Predicate isResponseSuccess() {
@@ -323,6 +400,7 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
     private Processor httpError404() {
         return exchange -> {
             exchange.getIn().setBody("Not found");
+            exchange.getIn().removeHeaders(ETAG + "|" + CACHE_CONTROL);
             exchange.getIn().setHeader(Exchange.HTTP_RESPONSE_CODE, HttpServletResponse.SC_NOT_FOUND);
             exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
         };
@@ -336,16 +414,46 @@ public class MainRouteBuilder extends RouteBuilderExceptionHandler {
         return exchange -> exchange.getIn().getHeader(CustomizedMultipartDataFormat.CONTENT_DISPOSITION, String.class).contains("filename");
     }
 
-    private void createMultipartToSendToInsights(Exchange exchange) {
+    private void createMultipartToSendToInsights(Exchange exchange) throws Exception {
         MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
         multipartEntityBuilder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
         multipartEntityBuilder.setContentType(ContentType.MULTIPART_FORM_DATA);
 
-        byte[] file = exchange.getIn().getBody(byte[].class);
-        multipartEntityBuilder.addPart("file", new ByteArrayBody(file, ContentType.create(mimeType), exchange.getIn().getHeader(Exchange.FILE_NAME, String.class)));
+        cacheUploadedFile(exchange);
+        StreamCache file = exchange.getIn().getBody(StreamCache.class);
+        multipartEntityBuilder.addPart("file", new StreamCacheBody(file, ContentType.create(mimeType), exchange.getIn().getHeader(Exchange.FILE_NAME, String.class)));
         exchange.getIn().setBody(multipartEntityBuilder.build());
     }
 
+    // writes the downloaded payload once to a local file, deleted once the exchange is done,
+    // so that the S3 upload and the archive splitting can both stream it from disk
+    private void spoolDownloadedFile(Exchange exchange) throws Exception {
+        File spoolFile = File.createTempFile("download-", ".payload", downloadSpoolDirectory);
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                FileUtil.deleteFile(spoolFile);
+            }
+        });
+
+        try (InputStream inputStream = exchange.getIn().getMandatoryBody(InputStream.class)) {
+            Files.copy(inputStream, spoolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        exchange.getIn().setHeader(Exchange.FILE_LENGTH, spoolFile.length());
+        exchange.getIn().setBody(spoolFile);
+    }
+
+    // copies the uploaded file into a stream cache, kept in memory or spooled to disk depending on its size,
+    // that is released once the exchange is done
+    private void cacheUploadedFile(Exchange exchange) throws Exception {
+        if (exchange.getIn().getBody() instanceof StreamCache) return;
+
+        InputStream inputStream = exchange.getIn().getMandatoryBody(InputStream.class);
+        CachedOutputStream cachedOutputStream = new CachedOutputStream(exchange);
+        IOHelper.copyAndCloseInput(inputStream, cachedOutputStream);
+        exchange.getIn().setBody(cachedOutputStream.newStreamCache());
+    }
+
     public String getRHIdentity(String x_rh_identity_base64, String filename, Map<String, Object> headers) throws IOException {
         JsonNode node= new ObjectMapper().reader().readTree(new String(Base64.getDecoder().decode(x_rh_identity_base64)));
 
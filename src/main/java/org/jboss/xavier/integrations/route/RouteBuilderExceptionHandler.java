@@ -4,8 +4,11 @@ import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.xavier.integrations.jpa.service.AnalysisService;
+import org.jboss.xavier.integrations.migrationanalytics.business.CloudFormsPayload;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 public abstract class RouteBuilderExceptionHandler extends RouteBuilder {
@@ -18,6 +21,8 @@ public abstract class RouteBuilderExceptionHandler extends RouteBuilder {
     public static final String WORKING_FILE = "workingFile";
     public static final String FROM_DATE = "fromDate";
     public static final String TO_DATE = "toDate";
+    public static final String ETAG = "ETag";
+    public static final String CACHE_CONTROL = "Cache-Control";
     @Inject
     protected AnalysisService analysisService;
 
@@ -26,6 +31,7 @@ public abstract class RouteBuilderExceptionHandler extends RouteBuilder {
         onException(Exception.class).routeId("exception-handler")
                 .handled(true)
                 .setHeader("exception", simple("${exception.stacktrace}"))
+                .removeHeaders(ETAG + "|" + CACHE_CONTROL)
                 .process(this::markAnalysisAsFailed)
                 .stop();
     }
@@ -46,4 +52,14 @@ public abstract class RouteBuilderExceptionHandler extends RouteBuilder {
             log.error("Exception occurred while marking the Analysis [" + analysisId + "] as failed.", ex);
         }
     }
+
+    // the payload is parsed only once and then shared by every calculator consuming the exchange
+    public void parseCloudFormsPayload(Exchange e) throws IOException {
+        if (!(e.getIn().getBody() instanceof CloudFormsPayload)) {
+            // archive entries are wrapped by the splitters so closing them doesn't close the archive stream
+            try (InputStream cloudFormsJson = e.getIn().getBody(InputStream.class)) {
+                e.getIn().setBody(CloudFormsPayload.parse(cloudFormsJson));
+            }
+        }
+    }
 }
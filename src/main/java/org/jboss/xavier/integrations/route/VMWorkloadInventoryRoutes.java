@@ -1,12 +1,16 @@
 package org.jboss.xavier.integrations.route;
 
+import org.apache.camel.Expression;
+import org.apache.camel.processor.aggregate.AggregationStrategy;
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
 import org.jboss.xavier.integrations.jpa.service.WorkloadInventoryReportService;
 import org.jboss.xavier.integrations.route.strategy.WorkloadInventoryReportModelAggregationStrategy;
+import org.jboss.xavier.integrations.route.strategy.WorkloadInventoryReportModelBatchAggregationStrategy;
 import org.springframework.beans.factory.annotation.Value;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,6 +18,7 @@ import java.util.stream.Collectors;
 
 @Named
 public class VMWorkloadInventoryRoutes extends RouteBuilderExceptionHandler {
+    private static final String SHARED_DISK_FLAG = "Shared Disk";
 
     @Inject
     WorkloadInventoryReportService workloadInventoryReportService;
@@ -21,27 +26,44 @@ public class VMWorkloadInventoryRoutes extends RouteBuilderExceptionHandler {
     @Value("${parallel.wir}")
     private boolean parallel;
 
+    @Value("${kieserver.batch.size:1}")
+    private int kieBatchSize;
+
     @Override
     public void configure() throws Exception {
         super.configure();
 
         from("direct:calculate-vmworkloadinventory").routeId("calculate-vmworkloadinventory")
             .setHeader("KieSessionId", constant("WorkloadInventoryKSession0"))
-            .bean("VMWorkloadInventoryCalculator", "calculate(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})", false)
-            .split(body()).parallelProcessing(parallel).aggregationStrategy(new WorkloadInventoryReportModelAggregationStrategy())
-                .setHeader(ANALYSIS_ID, simple("${body." + ANALYSIS_ID + "}", String.class))
-                .to("direct:vm-workload-inventory")
+            .process(this::parseCloudFormsPayload)
+            .bean("VMWorkloadInventoryCalculator", "calculateStreaming(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})", false)
+            // stops the extraction even if the split doesn't get to consume the iterator
+            .bean("utils", "closeBodyOnCompletion")
+            // the VMs are sent to the decision server while the calculator is still extracting the others
+            .split(decisionServerInputs(true)).streaming().parallelProcessing(parallel).aggregationStrategy(decisionServerOutputsAggregationStrategy())
+                .setHeader(ANALYSIS_ID, simple("${header." + MA_METADATA + "[" + ANALYSIS_ID + "]}", String.class))
+                .to(decisionServerEndpoint())
             .end()
-            .process(exchange -> analysisService.addWorkloadInventoryReportModels(exchange.getIn().getBody(List.class),
-                    Long.parseLong(exchange.getIn().getHeader(MA_METADATA, Map.class).get(ANALYSIS_ID).toString())));
+            .process(exchange -> {
+                // without any VM the split leaves the (empty) iterator as body
+                List<WorkloadInventoryReportModel> workloadInventoryReportModels = exchange.getIn().getBody(List.class);
+                analysisService.addWorkloadInventoryReportModels(workloadInventoryReportModels != null ? workloadInventoryReportModels : new ArrayList<>(),
+                    Long.parseLong(exchange.getIn().getHeader(MA_METADATA, Map.class).get(ANALYSIS_ID).toString()));
+            });
 
         from ("direct:vm-workload-inventory").routeId("extract-vmworkloadinventory")
             .transform().method("decisionServerHelper", "generateCommands(${body}, \"GetWorkloadInventoryReports\", ${header.KieSessionId})")
             .to("direct:decisionserver").id("workload-decisionserver")
             .transform().method("decisionServerHelper", "extractWorkloadInventoryReportModel");
 
+        from ("direct:vm-workload-inventory-batch").routeId("extract-vmworkloadinventory-batch")
+            .transform().method("decisionServerHelper", "generateBatchCommands(${body}, \"GetWorkloadInventoryReports\", ${header.KieSessionId})")
+            .to("direct:decisionserver").id("workload-batch-decisionserver")
+            .transform().method("decisionServerHelper", "extractWorkloadInventoryReportModels");
+
         from("direct:flags-shared-disks").routeId("flags-shared-disks")
-            .bean("flagSharedDisksCalculator", "calculate(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})", false)
+            .process(this::parseCloudFormsPayload)
+            .bean("flagSharedDisksCalculator", "calculateFromPayload(${body}, ${header.${type:org.jboss.xavier.integrations.route.MainRouteBuilder.MA_METADATA}})", false)
             .process(exchange -> {
                 Set<String> vmNamesWithSharedDisk = exchange.getIn().getBody(Set.class);
                 List<WorkloadInventoryReportModel> workloadInventoryReportModels = workloadInventoryReportService.findByAnalysisOwnerAndAnalysisId(
@@ -49,32 +71,43 @@ public class VMWorkloadInventoryRoutes extends RouteBuilderExceptionHandler {
                         Long.parseLong(exchange.getIn().getHeader(MA_METADATA, Map.class).get(ANALYSIS_ID).toString()));
                 List<WorkloadInventoryReportModel> workloadInventoryReportModelsToUpdate = workloadInventoryReportModels.stream()
                     .filter(workloadInventoryReportModel -> vmNamesWithSharedDisk.contains(workloadInventoryReportModel.getVmName()))
-                    .peek(workloadInventoryReportModel -> workloadInventoryReportModel.addFlagIMS("Shared Disk")).collect(Collectors.toList());
+                    .peek(workloadInventoryReportModel -> workloadInventoryReportModel.addFlagIMS(SHARED_DISK_FLAG)).collect(Collectors.toList());
                 exchange.getIn().setBody(workloadInventoryReportModelsToUpdate);
             })
             .to("direct:reevaluate-workload-inventory-reports");
 
         from("direct:reevaluate-workload-inventory-reports").routeId("reevaluate-workload-inventory-reports")
-            .split(body()).parallelProcessing(parallel).aggregationStrategy(new WorkloadInventoryReportModelAggregationStrategy())
+            .split(decisionServerInputs(false)).parallelProcessing(parallel).aggregationStrategy(decisionServerOutputsAggregationStrategy())
             .process(exchange -> {
-                WorkloadInventoryReportModel wir = exchange.getIn().getBody(WorkloadInventoryReportModel.class);
+                Object body = exchange.getIn().getBody();
+                WorkloadInventoryReportModel wir = (WorkloadInventoryReportModel) (body instanceof List ? ((List) body).get(0) : body);
                 exchange.getIn().setHeader(ANALYSIS_ID, wir.getAnalysis().getId());
             })
                 .setHeader("KieSessionId", constant("WorkloadInventoryComplexityKSession0"))
-                .to("direct:vm-workload-inventory").id("reevaluate-workload-decisionserver")
+                .to(decisionServerEndpoint()).id("reevaluate-workload-decisionserver")
             .end()
             .process(exchange -> {
                 String username = exchange.getIn().getHeader(USERNAME, String.class);
                 List<WorkloadInventoryReportModel> kieWir = exchange.getIn().getBody(List.class);
-                List<WorkloadInventoryReportModel> updatedWir = kieWir.stream()
-                        .map(element -> {
-                            WorkloadInventoryReportModel dbWir = workloadInventoryReportService.findOneByOwnerAndId(username, element.getId());
-                            dbWir.setComplexity(element.getComplexity());
-                            dbWir.setFlagsIMS(element.getFlagsIMS());
-                            return dbWir;
-                        }).collect(Collectors.toList());
-                workloadInventoryReportService.saveAll(updatedWir);
-                exchange.getIn().setBody(updatedWir);
+                exchange.getIn().setBody(workloadInventoryReportService.updateComplexityAndFlagsIMS(username, kieWir));
             });
     }
+
+    // with a batch size greater than 1, many facts are sent to the decision server within the same BatchExecutionCommand
+    private boolean isKieBatchEnabled() {
+        return kieBatchSize > 1;
+    }
+
+    private Expression decisionServerInputs(boolean streaming) {
+        String partitionMethod = streaming ? "partitionStreaming" : "partition";
+        return isKieBatchEnabled() ? method("decisionServerHelper", partitionMethod + "(${body}, " + kieBatchSize + ")") : body();
+    }
+
+    private AggregationStrategy decisionServerOutputsAggregationStrategy() {
+        return isKieBatchEnabled() ? new WorkloadInventoryReportModelBatchAggregationStrategy() : new WorkloadInventoryReportModelAggregationStrategy();
+    }
+
+    private String decisionServerEndpoint() {
+        return isKieBatchEnabled() ? "direct:vm-workload-inventory-batch" : "direct:vm-workload-inventory";
+    }
 }
@@ -15,8 +15,10 @@ import org.jboss.xavier.integrations.jpa.service.RecommendedTargetsIMSService;
 import org.jboss.xavier.integrations.jpa.service.ScanRunService;
 import org.jboss.xavier.integrations.jpa.service.SummaryService;
 import org.jboss.xavier.integrations.jpa.service.WorkloadInventoryReportService;
+import org.jboss.xavier.integrations.jpa.service.WorkloadSummaryReportService;
 import org.jboss.xavier.integrations.jpa.service.WorkloadService;
 import org.jboss.xavier.integrations.jpa.service.WorkloadsDetectedOSTypeService;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -52,6 +54,12 @@ public class WorkloadSummaryReportRoutes extends RouteBuilderExceptionHandler {
     @Inject
     SummaryService summaryService;
 
+    @Inject
+    WorkloadSummaryReportService workloadSummaryReportService;
+
+    @Value("${workloadsummaryreport.singlePass:true}")
+    private boolean singlePass;
+
     @Override
     public void configure() throws Exception {
         super.configure();
@@ -59,6 +67,14 @@ public class WorkloadSummaryReportRoutes extends RouteBuilderExceptionHandler {
             .routeId("calculate-workloadsummaryreportmodel")
             .process(exchange -> {
                 Long analysisId = Long.parseLong(((Map<String, String>) exchange.getIn().getHeader(MA_METADATA)).get(ANALYSIS_ID));
+
+                // in single pass mode all the models are calculated at once and then persisted together with the status
+                if (singlePass) {
+                    WorkloadSummaryReportModel workloadSummaryReportModel = workloadSummaryReportService.calculateWorkloadSummaryReportModel(analysisId);
+                    analysisService.setWorkloadSummaryReportModelAndUpdateStatus(workloadSummaryReportModel, analysisId);
+                    return;
+                }
+
                 WorkloadSummaryReportModel workloadSummaryReportModel = new WorkloadSummaryReportModel();
 
                 //retrieve each model one after the other
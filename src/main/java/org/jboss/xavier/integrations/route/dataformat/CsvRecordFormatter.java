@@ -0,0 +1,91 @@
+package org.jboss.xavier.integrations.route.dataformat;
+
+import org.apache.camel.dataformat.bindy.Format;
+import org.apache.camel.dataformat.bindy.annotation.CsvRecord;
+import org.apache.camel.dataformat.bindy.annotation.DataField;
+import org.jboss.xavier.analytics.pojo.BindyStringSetFormatFactory;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Formats the objects of a Bindy {@link CsvRecord} class one line at a time, with the same header, columns (in the
+ * order of their {@link DataField} positions), separator and line ending as the Bindy CSV data format, so that every
+ * line can be written as soon as its object is read instead of marshalling the whole list at once.
+ * The sets are formatted by {@link BindyStringSetFormatFactory}, any other value with its string representation.
+ */
+public class CsvRecordFormatter<T> {
+    private final List<Field> fields;
+    private final String separator;
+    private final String lineEnding;
+    private final String quote;
+    private final boolean generateHeaderColumns;
+    private final Format<Set<String>> setFormat;
+
+    @SuppressWarnings("unchecked")
+    public CsvRecordFormatter(Class<T> type) {
+        CsvRecord csvRecord = type.getAnnotation(CsvRecord.class);
+        if (csvRecord == null) throw new IllegalArgumentException(type.getName() + " is not annotated with @CsvRecord");
+
+        this.separator = csvRecord.separator();
+        this.lineEnding = getLineEnding(csvRecord.crlf());
+        this.quote = csvRecord.quoting() ? csvRecord.quote() : "";
+        this.generateHeaderColumns = csvRecord.generateHeaderColumns();
+        this.setFormat = (Format<Set<String>>) new BindyStringSetFormatFactory().build(null);
+        this.fields = Arrays.stream(type.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(DataField.class))
+                .sorted(Comparator.comparingInt(field -> field.getAnnotation(DataField.class).pos()))
+                .collect(Collectors.toList());
+        this.fields.forEach(field -> field.setAccessible(true));
+    }
+
+    private static String getLineEnding(String crlf) {
+        switch (crlf) {
+            case "WINDOWS":
+                return "\r\n";
+            case "UNIX":
+                return "\n";
+            case "MAC":
+                return "\r";
+            default:
+                return crlf;
+        }
+    }
+
+    /**
+     * @return the header line, empty if the record doesn't generate the header columns
+     */
+    public String formatHeader() {
+        if (!generateHeaderColumns) return "";
+
+        return fields.stream()
+                .map(field -> {
+                    String columnName = field.getAnnotation(DataField.class).columnName();
+                    return quote + (columnName.isEmpty() ? field.getName() : columnName) + quote;
+                })
+                .collect(Collectors.joining(separator, "", lineEnding));
+    }
+
+    @SuppressWarnings("unchecked")
+    public String format(T object) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) line.append(separator);
+            Field field = fields.get(i);
+            try {
+                Object value = field.get(object);
+                // as Bindy does, the null values are left empty unless the field has a default value
+                String text = value == null ? field.getAnnotation(DataField.class).defaultValue() :
+                        value instanceof Set ? setFormat.format((Set<String>) value) : value.toString();
+                line.append(quote).append(text).append(quote);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to format the field " + field.getName() + " of " + object, e);
+            }
+        }
+        return line.append(lineEnding).toString();
+    }
+}
@@ -5,22 +5,31 @@ import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.dataformat.mime.multipart.MimeMultipartDataFormat;
 import org.apache.camel.impl.DefaultAttachment;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.camel.util.FileUtil;
 import org.apache.camel.util.IOHelper;
 import org.apache.camel.util.MessageHelper;
 import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
 
+import javax.activation.DataSource;
 import javax.mail.BodyPart;
 import javax.mail.Header;
 import javax.mail.MessagingException;
 import javax.mail.internet.ContentType;
-import javax.mail.internet.InternetHeaders;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.internet.MimeUtility;
 import javax.mail.internet.ParseException;
+import javax.mail.internet.SharedInputStream;
+import javax.mail.util.SharedByteArrayInputStream;
+import javax.mail.util.SharedFileInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -34,6 +43,24 @@ public class CustomizedMultipartDataFormat extends MimeMultipartDataFormat {
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String CONTENT_DISPOSITION = "Content-Disposition";
 
+    public static final int DEFAULT_SPOOL_THRESHOLD = 1024 * 1024;
+
+    private final int spoolThreshold;
+    private final File spoolDirectory;
+
+    public CustomizedMultipartDataFormat() {
+        this(DEFAULT_SPOOL_THRESHOLD, null);
+    }
+
+    /**
+     * @param spoolThreshold bodies bigger than this number of bytes are spooled to a temporary file instead of being kept in memory
+     * @param spoolDirectory directory for the temporary files, the default temporary-file directory if null
+     */
+    public CustomizedMultipartDataFormat(int spoolThreshold, File spoolDirectory) {
+        this.spoolThreshold = spoolThreshold;
+        this.spoolDirectory = spoolDirectory;
+    }
+
     @Override
     public Object unmarshal(Exchange exchange, InputStream stream) throws IOException, MessagingException {
         // check if this a multipart at all. Otherwise do nothing
@@ -54,39 +81,31 @@ public class CustomizedMultipartDataFormat extends MimeMultipartDataFormat {
         Message camelMessage = exchange.getOut();
         MessageHelper.copyHeaders(exchange.getIn(), camelMessage, true);
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        IOHelper.copyAndCloseInput(stream, bos);
-
-        InternetHeaders headers = new InternetHeaders();
-        extractHeader(CONTENT_TYPE, camelMessage, headers);
-        extractHeader(MIME_VERSION, camelMessage, headers);
-
-        MimeBodyPart mimeMessage = new MimeBodyPart(headers, bos.toByteArray());
-        bos.close();
-
-        Object content = mimeMessage.getDataHandler().getContent();
-
-        if (content instanceof MimeMultipart) {
-            MimeMultipart mp = (MimeMultipart) content;
-            for (int i = 0; i < mp.getCount(); i++) {
-                BodyPart bp = mp.getBodyPart(i);
-                DefaultAttachment camelAttachment = new DefaultAttachment(bp.getDataHandler());
-
-                @SuppressWarnings("unchecked")
-                Enumeration<Header> bpAllHeaders = bp.getAllHeaders();
-                while (bpAllHeaders.hasMoreElements()) {
-                    Header header = bpAllHeaders.nextElement();
-                    camelAttachment.addHeader(header.getName(), header.getValue());
-                }
-                // All non file parts are considered parameters and set as headers of the whole message
-                if (!camelAttachment.getHeader(CONTENT_DISPOSITION).contains("filename")) {
-                    Map ma_metadata = camelMessage.getHeader(RouteBuilderExceptionHandler.MA_METADATA, new HashMap<String,String>(), java.util.Map.class);
-                    ma_metadata.put(getFieldNameFromMultipart(camelAttachment), camelAttachment.getDataHandler().getContent());
-                    camelMessage.setHeader(RouteBuilderExceptionHandler.MA_METADATA, ma_metadata);
-                }
-
-                camelMessage.addAttachmentObject(getAttachmentKey(bp), camelAttachment);
+        camelMessage.removeHeader(CONTENT_TYPE);
+        camelMessage.removeHeader(MIME_VERSION);
+
+        // The parts parsed from a SharedInputStream only keep references to their position in the body,
+        // so once spooled the file parts are read straight from the spool file when needed
+        SharedInputStream body = spool(exchange, stream);
+        MimeMultipart mp = new MimeMultipart(new SharedInputStreamDataSource(contentType, body));
+        for (int i = 0; i < mp.getCount(); i++) {
+            BodyPart bp = mp.getBodyPart(i);
+            DefaultAttachment camelAttachment = new DefaultAttachment(bp.getDataHandler());
+
+            @SuppressWarnings("unchecked")
+            Enumeration<Header> bpAllHeaders = bp.getAllHeaders();
+            while (bpAllHeaders.hasMoreElements()) {
+                Header header = bpAllHeaders.nextElement();
+                camelAttachment.addHeader(header.getName(), header.getValue());
+            }
+            // All non file parts are considered parameters and set as headers of the whole message
+            if (!camelAttachment.getHeader(CONTENT_DISPOSITION).contains("filename")) {
+                Map ma_metadata = camelMessage.getHeader(RouteBuilderExceptionHandler.MA_METADATA, new HashMap<String,String>(), java.util.Map.class);
+                ma_metadata.put(getFieldNameFromMultipart(camelAttachment), camelAttachment.getDataHandler().getContent());
+                camelMessage.setHeader(RouteBuilderExceptionHandler.MA_METADATA, ma_metadata);
             }
+
+            camelMessage.addAttachmentObject(getAttachmentKey(bp), camelAttachment);
         }
 
         return camelMessage;
@@ -124,11 +143,72 @@ public class CustomizedMultipartDataFormat extends MimeMultipartDataFormat {
         return MimeUtility.decodeText(key);
     }
 
-    private void extractHeader(String headerMame, Message camelMessage, InternetHeaders headers) {
-        String h = camelMessage.getHeader(headerMame, String.class);
-        if (h != null) {
-            headers.addHeader(headerMame, h);
-            camelMessage.removeHeader(headerMame);
+    private SharedInputStream spool(Exchange exchange, InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                bos.write(buffer, 0, read);
+                if (bos.size() > spoolThreshold) {
+                    return spoolToFile(exchange, bos, stream);
+                }
+            }
+            return new SharedByteArrayInputStream(bos.toByteArray());
+        } finally {
+            IOHelper.close(stream);
+        }
+    }
+
+    private SharedInputStream spoolToFile(Exchange exchange, ByteArrayOutputStream head, InputStream stream) throws IOException {
+        File spoolFile = File.createTempFile("upload-", ".multipart", spoolDirectory);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(spoolFile))) {
+            head.writeTo(out);
+            head.reset();
+            IOHelper.copy(stream, out);
+        } catch (IOException e) {
+            FileUtil.deleteFile(spoolFile);
+            throw e;
+        }
+
+        SharedFileInputStream spooledBody = new SharedFileInputStream(spoolFile);
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                IOHelper.close(spooledBody);
+                FileUtil.deleteFile(spoolFile);
+            }
+        });
+        return spooledBody;
+    }
+
+    private static class SharedInputStreamDataSource implements DataSource {
+        private final String contentType;
+        private final SharedInputStream body;
+
+        private SharedInputStreamDataSource(String contentType, SharedInputStream body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return body.newStream(0, -1);
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            throw new IOException("Read only data source");
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return "multipart";
         }
     }
 }
@@ -0,0 +1,48 @@
+package org.jboss.xavier.integrations.route.dataformat;
+
+import org.apache.camel.StreamCache;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Multipart content body backed by a Camel {@link StreamCache}: the content is written straight from the
+ * cache (in memory or spooled to disk) to the HTTP connection instead of being copied into a byte array.
+ * When the cache can not report its length the request is sent with chunked transfer.
+ */
+public class StreamCacheBody extends AbstractContentBody {
+    private final StreamCache streamCache;
+    private final String filename;
+
+    public StreamCacheBody(StreamCache streamCache, ContentType contentType, String filename) {
+        super(contentType);
+        this.streamCache = streamCache;
+        this.filename = filename;
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        // the entity could be written more than once (e.g. retries or getContent), so always restart from the beginning
+        streamCache.reset();
+        streamCache.writeTo(out);
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        long length = streamCache.length();
+        return length >= 0 ? length : -1;
+    }
+}
@@ -0,0 +1,20 @@
+package org.jboss.xavier.integrations.route.model;
+
+public class CacheValidator {
+
+    private final String eTag;
+    private final String cacheControl;
+
+    public CacheValidator(String eTag, String cacheControl) {
+        this.eTag = eTag;
+        this.cacheControl = cacheControl;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+}
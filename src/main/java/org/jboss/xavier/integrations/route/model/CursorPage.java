@@ -0,0 +1,40 @@
+package org.jboss.xavier.integrations.route.model;
+
+import java.util.List;
+
+/**
+ * Page of a cursor pagination: the cursor of the next page is null on the last one
+ * and the total number of elements is null unless it has been requested
+ */
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final Long totalElements;
+
+    public CursorPage(List<T> content, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
@@ -0,0 +1,27 @@
+package org.jboss.xavier.integrations.route.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page along with the number of elements matching every value of every facet (e.g. "providers" -> "VMware" -> 10)
+ * under the current filter, or null if they've not been requested
+ */
+public class FacetedPage<T> extends PageImpl<T> {
+
+    private final Map<String, Map<String, Long>> facetCounts;
+
+    public FacetedPage(List<T> content, Pageable pageable, long total, Map<String, Map<String, Long>> facetCounts) {
+        super(content, pageable, total);
+        this.facetCounts = facetCounts;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, Map<String, Long>> getFacetCounts() {
+        return facetCounts;
+    }
+}
@@ -0,0 +1,81 @@
+package org.jboss.xavier.integrations.route.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Position of a workload inventory report in the (provider, datacenter, cluster, vmName, id) order used by the cursor
+ * pagination, exchanged with the clients as an opaque token
+ */
+public class WorkloadInventoryReportCursor {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final List<String> values;
+    private final Long id;
+
+    public WorkloadInventoryReportCursor(String provider, String datacenter, String cluster, String vmName, Long id) {
+        this.values = Arrays.asList(provider, datacenter, cluster, vmName);
+        this.id = id;
+    }
+
+    public static WorkloadInventoryReportCursor of(WorkloadInventoryReportModel workloadInventoryReportModel) {
+        return new WorkloadInventoryReportCursor(workloadInventoryReportModel.getProvider(), workloadInventoryReportModel.getDatacenter(),
+                workloadInventoryReportModel.getCluster(), workloadInventoryReportModel.getVmName(), workloadInventoryReportModel.getId());
+    }
+
+    /**
+     * @return null for an empty token, i.e. the request of the first page
+     * @throws IllegalArgumentException if the token has not been generated by {@link #encode()}
+     */
+    public static WorkloadInventoryReportCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) return null;
+        try {
+            String[] tuple = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(token.trim()), String[].class);
+            return new WorkloadInventoryReportCursor(tuple[0], tuple[1], tuple[2], tuple[3], Long.valueOf(tuple[4]));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor " + token, e);
+        }
+    }
+
+    public String encode() {
+        String[] tuple = {values.get(0), values.get(1), values.get(2), values.get(3), String.valueOf(id)};
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsString(tuple).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return provider, datacenter, cluster and vmName
+     */
+    public List<String> getValues() {
+        return values;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WorkloadInventoryReportCursor that = (WorkloadInventoryReportCursor) o;
+        return Objects.equals(values, that.values) &&
+                Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(values, id);
+    }
+}
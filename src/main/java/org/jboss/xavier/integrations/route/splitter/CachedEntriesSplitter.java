@@ -0,0 +1,78 @@
+package org.jboss.xavier.integrations.route.splitter;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Message;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.converter.stream.CachedOutputStream;
+import org.apache.camel.support.ExpressionAdapter;
+import org.apache.camel.util.IOHelper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Wraps an archive splitter (e.g. {@link org.apache.camel.dataformat.zipfile.ZipSplitter}) so that every entry is
+ * copied into a stream cache, in memory or spooled to disk depending on its size, while the archive is iterated.
+ * Entries of the archive splitters are views over the single archive stream, so they can be handed to other threads
+ * for parallel processing only once they've been cached.
+ */
+public class CachedEntriesSplitter extends ExpressionAdapter
+{
+    private final Expression archiveSplitter;
+
+    public CachedEntriesSplitter(Expression archiveSplitter)
+    {
+        this.archiveSplitter = archiveSplitter;
+    }
+
+    @Override
+    public Object evaluate(Exchange exchange)
+    {
+        Iterator<?> entries = archiveSplitter.evaluate(exchange, Iterator.class);
+        return new CachedEntriesIterator(exchange, entries);
+    }
+
+    private static class CachedEntriesIterator implements Iterator<Message>, Closeable
+    {
+        private final Exchange exchange;
+        private final Iterator<?> entries;
+
+        private CachedEntriesIterator(Exchange exchange, Iterator<?> entries)
+        {
+            this.exchange = exchange;
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return entries.hasNext();
+        }
+
+        @Override
+        public Message next()
+        {
+            Message entry = (Message) entries.next();
+            try {
+                // the cache is released when the exchange splitting the archive is done
+                CachedOutputStream cachedEntry = new CachedOutputStream(exchange);
+                IOHelper.copy(entry.getMandatoryBody(InputStream.class), cachedEntry);
+                entry.setBody(cachedEntry.newStreamCache());
+                return entry;
+            } catch (Exception e) {
+                throw new RuntimeCamelException("Unable to cache the archive entry " + entry.getHeader(Exchange.FILE_NAME), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (entries instanceof Closeable) {
+                ((Closeable) entries).close();
+            }
+        }
+    }
+}
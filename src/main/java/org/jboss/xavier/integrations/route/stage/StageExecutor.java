@@ -0,0 +1,132 @@
+package org.jboss.xavier.integrations.route.stage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Sends a copy of the exchange to the endpoint of every stage, running each stage as soon as the ones it depends on
+ * have completed, so that independent stages run concurrently on the given executor.
+ *
+ * The resulting body and headers are the ones of the first stage, the other stages being run for their side effects.
+ * The failure of any stage, even if already handled by the stage's route (e.g. by
+ * {@link org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler}), skips the stages depending on it and is
+ * propagated to the exchange, the failures of the other stages being added to it as suppressed.
+ * The elapsed time of every stage is stored, in milliseconds, in the {@link #STAGE_TIMINGS} property.
+ */
+@Slf4j
+public class StageExecutor implements Processor
+{
+    public static final String STAGE_TIMINGS = "stageTimings";
+
+    private final ProducerTemplate producerTemplate;
+    private final Executor executor;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    public StageExecutor(ProducerTemplate producerTemplate, Executor executor)
+    {
+        this.producerTemplate = producerTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * @param dependsOn stages that have to be completed before this one starts, they must have been added already
+     */
+    public StageExecutor stage(String name, String endpointUri, String... dependsOn)
+    {
+        Arrays.stream(dependsOn)
+                .filter(dependency -> !stages.containsKey(dependency))
+                .findAny()
+                .ifPresent(dependency -> { throw new IllegalArgumentException("Stage " + name + " depends on the unknown stage " + dependency); });
+        stages.put(name, new Stage(name, endpointUri, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception
+    {
+        long start = System.currentTimeMillis();
+        Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        Map<String, CompletableFuture<Exchange>> results = new LinkedHashMap<>();
+        for (Stage stage : stages.values()) {
+            CompletableFuture<?>[] dependencies = stage.dependsOn.stream().map(results::get).toArray(CompletableFuture[]::new);
+            results.put(stage.name, CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> run(stage, exchange, timings), executor));
+        }
+
+        Exchange firstStageExchange = null;
+        Throwable failure = null;
+        for (Map.Entry<String, CompletableFuture<Exchange>> result : results.entrySet()) {
+            try {
+                Exchange stageExchange = result.getValue().join();
+                if (firstStageExchange == null) firstStageExchange = stageExchange;
+            } catch (CompletionException e) {
+                log.error("Stage {} of exchange {} not completed", result.getKey(), exchange.getExchangeId(), e.getCause());
+                // the stages skipped because of a failed dependency bring back the dependency's failure
+                if (failure == null) {
+                    failure = e.getCause();
+                } else if (failure != e.getCause()) {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        log.info("Stages of exchange {} completed in {} ms: {}", exchange.getExchangeId(), System.currentTimeMillis() - start, timings);
+
+        exchange.setProperty(STAGE_TIMINGS, timings);
+        if (failure != null) {
+            exchange.setException(failure);
+            return;
+        }
+        if (firstStageExchange != null) {
+            exchange.getIn().setHeaders(firstStageExchange.getIn().getHeaders());
+            exchange.getIn().setBody(firstStageExchange.getIn().getBody());
+        }
+    }
+
+    private Exchange run(Stage stage, Exchange exchange, Map<String, Long> timings)
+    {
+        long start = System.currentTimeMillis();
+        Exchange stageExchange = exchange.copy();
+        stageExchange.removeProperty(Exchange.EXCEPTION_CAUGHT);
+        stageExchange = producerTemplate.send(stage.endpointUri, stageExchange);
+        timings.put(stage.name, System.currentTimeMillis() - start);
+        Throwable failure = getFailure(stageExchange);
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+        return stageExchange;
+    }
+
+    // an exception handled by the route is removed from the exchange, which keeps it only as the caught one
+    private static Throwable getFailure(Exchange stageExchange)
+    {
+        if (stageExchange.getException() != null) {
+            return stageExchange.getException();
+        }
+        return stageExchange.getProperty(Exchange.EXCEPTION_CAUGHT, Throwable.class);
+    }
+
+    private static class Stage
+    {
+        final String name;
+        final String endpointUri;
+        final List<String> dependsOn;
+
+        Stage(String name, String endpointUri, List<String> dependsOn)
+        {
+            this.name = name;
+            this.endpointUri = endpointUri;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
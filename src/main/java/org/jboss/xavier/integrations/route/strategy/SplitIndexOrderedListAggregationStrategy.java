@@ -0,0 +1,45 @@
+package org.jboss.xavier.integrations.route.strategy;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.processor.aggregate.AbstractListAggregationStrategy;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates the values in the order of the split, i.e. by split index, rather than in the order the
+ * parallel streaming split completes them.
+ */
+public abstract class SplitIndexOrderedListAggregationStrategy<V> extends AbstractListAggregationStrategy<V>
+{
+    static final String VALUES_BY_SPLIT_INDEX = "CamelValuesBySplitIndex";
+
+    @Override
+    public Exchange aggregate(Exchange oldExchange, Exchange newExchange)
+    {
+        Exchange exchange = oldExchange != null ? oldExchange : newExchange;
+        if (newExchange != null) {
+            V value = getValue(newExchange);
+            if (value != null) {
+                Map<Integer, V> values = exchange.getProperty(VALUES_BY_SPLIT_INDEX, Map.class);
+                if (values == null) {
+                    values = new TreeMap<>();
+                    exchange.setProperty(VALUES_BY_SPLIT_INDEX, values);
+                }
+                Integer splitIndex = newExchange.getProperty(Exchange.SPLIT_INDEX, Integer.class);
+                values.put(splitIndex != null ? splitIndex : values.size(), value);
+            }
+        }
+        return exchange;
+    }
+
+    @Override
+    public void onCompletion(Exchange exchange)
+    {
+        if (exchange != null && exchange.getProperty(VALUES_BY_SPLIT_INDEX) != null) {
+            Map<Integer, V> values = (Map<Integer, V>) exchange.removeProperty(VALUES_BY_SPLIT_INDEX);
+            exchange.getIn().setBody(new ArrayList<>(values.values()));
+        }
+    }
+}
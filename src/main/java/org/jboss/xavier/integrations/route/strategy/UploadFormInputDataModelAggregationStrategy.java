@@ -0,0 +1,40 @@
+package org.jboss.xavier.integrations.route.strategy;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.processor.aggregate.AggregationStrategy;
+import org.jboss.xavier.analytics.pojo.input.UploadFormInputDataModel;
+import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
+
+/**
+ * Sums the hypervisors and the total disk space of the {@link UploadFormInputDataModel} calculated for every file
+ * of a payload into the one stored in the {@link RouteBuilderExceptionHandler#UPLOADFORMDATA} header of the first
+ * aggregated exchange.
+ * Sums don't depend on the order the files complete, so this can be used with splits processed in parallel.
+ */
+public class UploadFormInputDataModelAggregationStrategy implements AggregationStrategy
+{
+    @Override
+    public synchronized Exchange aggregate(Exchange oldExchange, Exchange newExchange)
+    {
+        UploadFormInputDataModel newModel = newExchange.getIn().getBody(UploadFormInputDataModel.class);
+        if (oldExchange == null) {
+            newExchange.getIn().setHeader(RouteBuilderExceptionHandler.UPLOADFORMDATA, newModel);
+            return newExchange;
+        }
+
+        UploadFormInputDataModel totals = oldExchange.getIn().getHeader(RouteBuilderExceptionHandler.UPLOADFORMDATA, UploadFormInputDataModel.class);
+        totals.setTotalDiskSpace(valueOf(totals.getTotalDiskSpace()) + valueOf(newModel.getTotalDiskSpace()));
+        totals.setHypervisor(valueOf(totals.getHypervisor()) + valueOf(newModel.getHypervisor()));
+        return oldExchange;
+    }
+
+    private static long valueOf(Long number)
+    {
+        return number != null ? number : 0L;
+    }
+
+    private static int valueOf(Integer number)
+    {
+        return number != null ? number : 0;
+    }
+}
@@ -1,10 +1,9 @@
 package org.jboss.xavier.integrations.route.strategy;
 
 import org.apache.camel.Exchange;
-import org.apache.camel.processor.aggregate.AbstractListAggregationStrategy;
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
 
-public class WorkloadInventoryReportModelAggregationStrategy extends AbstractListAggregationStrategy<WorkloadInventoryReportModel>
+public class WorkloadInventoryReportModelAggregationStrategy extends SplitIndexOrderedListAggregationStrategy<WorkloadInventoryReportModel>
 {
     @Override
     public WorkloadInventoryReportModel getValue(Exchange exchange)
@@ -0,0 +1,31 @@
+package org.jboss.xavier.integrations.route.strategy;
+
+import org.apache.camel.Exchange;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class WorkloadInventoryReportModelBatchAggregationStrategy extends SplitIndexOrderedListAggregationStrategy<List<WorkloadInventoryReportModel>>
+{
+    @Override
+    public List<WorkloadInventoryReportModel> getValue(Exchange exchange)
+    {
+        return exchange.getIn().getBody(List.class);
+    }
+
+    @Override
+    public void onCompletion(Exchange exchange)
+    {
+        boolean aggregated = exchange != null && exchange.getProperty(VALUES_BY_SPLIT_INDEX) != null;
+        super.onCompletion(exchange);
+        // every batch brings back a list of reports so they're flattened into a single list
+        if (aggregated) {
+            List<List<WorkloadInventoryReportModel>> batches = exchange.getIn().getBody(List.class);
+            exchange.getIn().setBody(batches.stream()
+                    .flatMap(Collection::stream)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.jboss.xavier.utils;
+
+import java.util.Arrays;
+
+public class ETagUtils {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * Evaluates the If-None-Match header of a GET request: the tags listed are compared with the weak comparison
+     * (RFC 7232, 3.2), i.e. regardless of their "W/" prefix, and "*" matches any current representation.
+     *
+     * @return true if the current representation, tagged with the entity tag, matches and so it has not been modified
+     */
+    public boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) return false;
+        if ("*".equals(ifNoneMatch.trim())) return true;
+
+        String opaqueTag = removeWeakPrefix(eTag);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(ETagUtils::removeWeakPrefix)
+                .anyMatch(opaqueTag::equals);
+    }
+
+    private static String removeWeakPrefix(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+}
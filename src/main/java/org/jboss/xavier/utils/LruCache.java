@@ -0,0 +1,59 @@
+package org.jboss.xavier.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe cache keeping the total weight of its entries within the given budget, discarding the least recently
+ * used ones. By default every entry weighs 1, i.e. the budget is the maximum number of entries.
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private long weight;
+
+    public LruCache(int maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * An entry weighing more than the whole budget is discarded straight away
+     */
+    public synchronized void put(K key, V value) {
+        V previous = entries.put(key, value);
+        if (previous != null) weight -= weigher.applyAsLong(previous);
+        weight += weigher.applyAsLong(value);
+
+        Iterator<V> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= weigher.applyAsLong(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    public synchronized void remove(K key) {
+        V previous = entries.remove(key);
+        if (previous != null) weight -= weigher.applyAsLong(previous);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+}
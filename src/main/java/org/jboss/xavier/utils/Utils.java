@@ -1,5 +1,10 @@
 package org.jboss.xavier.utils;
 
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.camel.util.IOHelper;
+
+import java.io.Closeable;
 import java.util.UUID;
 
 public class Utils {
@@ -8,4 +13,18 @@ public class Utils {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Closes the body, e.g. a stream read while writing the response, once the exchange is done whatever its outcome
+     */
+    public void closeBodyOnCompletion(Exchange exchange) {
+        Object body = exchange.getIn().getBody();
+        if (!(body instanceof Closeable)) return;
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                IOHelper.close((Closeable) body);
+            }
+        });
+    }
+
 }
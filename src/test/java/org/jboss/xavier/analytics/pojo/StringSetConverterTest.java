@@ -0,0 +1,36 @@
+package org.jboss.xavier.analytics.pojo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StringSetConverterTest {
+    private final StringSetConverter converter = new StringSetConverter();
+
+    @Test
+    public void convertToDatabaseColumn_SetGiven_ShouldSortEscapeAndEncloseTheElements() {
+        Set<String> elements = new HashSet<>(Arrays.asList("RHV", "OSP", "a|b", "c\\d"));
+
+        String column = converter.convertToDatabaseColumn(elements);
+
+        assertThat(column).isEqualTo("|OSP|RHV|a\\|b|c\\\\d|");
+        assertThat(converter.convertToEntityAttribute(column)).isEqualTo(elements);
+    }
+
+    @Test
+    public void convertToDatabaseColumn_EmptySetGiven_ShouldReturnNull() {
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToDatabaseColumn(Collections.emptySet())).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+    }
+
+    @Test
+    public void decodeAll_EncodedSetsGiven_ShouldReturnTheUnionOfTheElements() {
+        assertThat(StringSetConverter.decodeAll(Arrays.asList("|OSP|RHV|", "|RHEL|RHV|", "||"))).containsOnly("OSP", "RHV", "RHEL", "");
+    }
+}
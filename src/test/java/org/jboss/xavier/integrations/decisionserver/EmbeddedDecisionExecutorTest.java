@@ -0,0 +1,89 @@
+package org.jboss.xavier.integrations.decisionserver;
+
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.DecisionServerHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.api.builder.model.KieSessionModel;
+import org.kie.api.runtime.ExecutionResults;
+import org.kie.server.api.model.KieServiceResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmbeddedDecisionExecutorTest {
+
+    private static final String DRL = "package rules;\n" +
+            "import " + WorkloadInventoryReportModel.class.getName() + ";\n" +
+            "rule \"Complexity\"\n" +
+            "when\n" +
+            "    report : WorkloadInventoryReportModel(complexity == null)\n" +
+            "then\n" +
+            "    modify(report) { setComplexity(\"Easy\") };\n" +
+            "end\n" +
+            "query \"GetWorkloadInventoryReports\"\n" +
+            "    report : WorkloadInventoryReportModel()\n" +
+            "end\n";
+
+    private final DecisionServerHelper decisionServerHelper = new DecisionServerHelper();
+
+    private EmbeddedDecisionExecutor embeddedDecisionExecutor;
+
+    @Before
+    public void setup() {
+        // a test kjar, built and installed in the in-memory KIE repository, so that no Maven repository is needed
+        KieServices kieServices = KieServices.Factory.get();
+        ReleaseId releaseId = kieServices.newReleaseId("org.jboss.xavier", "embedded-decision-executor-test", "1.0.0");
+        KieModuleModel kieModuleModel = kieServices.newKieModuleModel();
+        kieModuleModel.newKieBaseModel("WorkloadInventoryKBase").addPackage("rules")
+                .newKieSessionModel("WorkloadInventoryKSession0").setType(KieSessionModel.KieSessionType.STATEFUL);
+        KieFileSystem kieFileSystem = kieServices.newKieFileSystem()
+                .generateAndWritePomXML(releaseId)
+                .writeKModuleXML(kieModuleModel.toXML())
+                .write("src/main/resources/rules/workloadinventory.drl", DRL);
+        KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem).buildAll();
+        assertThat(kieBuilder.getResults().getMessages(Message.Level.ERROR)).isEmpty();
+
+        embeddedDecisionExecutor = new EmbeddedDecisionExecutor();
+        ReflectionTestUtils.setField(embeddedDecisionExecutor, "releaseId", "org.jboss.xavier:embedded-decision-executor-test:1.0.0");
+    }
+
+    @After
+    public void tearDown() {
+        embeddedDecisionExecutor.dispose();
+    }
+
+    @Test
+    public void embeddedDecisionExecutor_BatchCommandsGiven_ShouldReturnTheResponseTheExtractorsExpect() {
+        WorkloadInventoryReportModel first = new WorkloadInventoryReportModel();
+        first.setVmName("vm1");
+        WorkloadInventoryReportModel second = new WorkloadInventoryReportModel();
+        second.setVmName("vm2");
+
+        KieServiceResponse<ExecutionResults> response = embeddedDecisionExecutor.execute(
+                decisionServerHelper.generateBatchCommands(Arrays.asList(first, second), "GetWorkloadInventoryReports", "WorkloadInventoryKSession0"),
+                "WorkloadInventoryKSession0");
+
+        assertThat(response.getType()).isEqualTo(KieServiceResponse.ResponseType.SUCCESS);
+        List<WorkloadInventoryReportModel> workloadInventoryReportModels = decisionServerHelper.extractWorkloadInventoryReportModels(response);
+        assertThat(workloadInventoryReportModels).extracting(WorkloadInventoryReportModel::getVmName).containsExactlyInAnyOrder("vm1", "vm2");
+        assertThat(workloadInventoryReportModels).extracting(WorkloadInventoryReportModel::getComplexity).containsOnly("Easy");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void embeddedDecisionExecutor_UnknownKieSessionGiven_ShouldThrowException() {
+        embeddedDecisionExecutor.execute(
+                decisionServerHelper.generateCommands(new WorkloadInventoryReportModel(), "GetWorkloadInventoryReports", "UnknownKSession"),
+                "UnknownKSession");
+    }
+}
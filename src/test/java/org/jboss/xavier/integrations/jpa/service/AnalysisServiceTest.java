@@ -4,6 +4,8 @@ import org.apache.camel.test.spring.CamelSpringBootRunner;
 import org.apache.camel.test.spring.UseAdviceWith;
 import org.jboss.xavier.Application;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,6 +13,16 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
@@ -25,6 +37,9 @@ public class AnalysisServiceTest {
     @Inject
     private AnalysisService service;
 
+    @Inject
+    private WorkloadInventoryReportService workloadInventoryReportService;
+
     @Test
     public void analysisService_NewStatusGiven_ShouldChangeAndPersistTheEntity() {
         AnalysisModel analysisModel = service.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
@@ -80,4 +95,66 @@ public class AnalysisServiceTest {
         assertThat(service.findByIdAndStatusIgnoreCaseNot(analysisModel.getId(), AnalysisService.STATUS.IN_PROGRESS.toString())).isNull();
         assertThat(service.findByIdAndStatusIgnoreCaseNot(analysisModel.getId(), AnalysisService.STATUS.FAILED.toString())).isNotNull();
     }
+
+    @Test
+    public void analysisService_WorkloadInventoryReportsGiven_ShouldBulkInsertThemWithTheirCollections() {
+        AnalysisModel analysisModel = service.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = IntStream.range(0, 2500).mapToObj(i -> {
+            WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+            reportModel.setVmName("vm-" + i);
+            reportModel.setOsDescription("\"quoted\", description");
+            reportModel.setCreationDate(new Date());
+            reportModel.setWorkloads(new HashSet<>(Arrays.asList("Tomcat", "Oracle")));
+            reportModel.addFlagIMS("Shared Disk");
+            return reportModel;
+        }).collect(Collectors.toList());
+
+        service.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+
+        assertThat(reportModels.stream().map(WorkloadInventoryReportModel::getId).distinct().count()).isEqualTo(2500);
+        List<WorkloadInventoryReportModel> persistedReportModels = workloadInventoryReportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId());
+        assertThat(persistedReportModels.size()).isEqualTo(2500);
+        WorkloadInventoryReportModel persistedReportModel = persistedReportModels.stream().filter(reportModel -> "vm-42".equals(reportModel.getVmName())).findFirst().get();
+        assertThat(persistedReportModel.getOsDescription()).isEqualTo("\"quoted\", description");
+        assertThat(persistedReportModel.getWorkloads()).containsOnly("Tomcat", "Oracle");
+        assertThat(persistedReportModel.getFlagsIMS()).containsOnly("Shared Disk");
+        assertThat(persistedReportModel.getRecommendedTargetsIMS()).isEmpty();
+    }
+
+    @Test
+    public void analysisService_FilesOfAPayloadGivenConcurrently_ShouldKeepTheirReportsAndTheFailureOfAnyOfThem() throws Exception {
+        AnalysisModel analysisModel = service.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> files = new ArrayList<>();
+        for (int file = 0; file < 8; file++) {
+            final int fileIndex = file;
+            files.add(executorService.submit(() -> {
+                List<WorkloadInventoryReportModel> reportModels = IntStream.range(0, 50).mapToObj(i -> {
+                    WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+                    reportModel.setVmName("vm-" + fileIndex + "-" + i);
+                    return reportModel;
+                }).collect(Collectors.toList());
+                service.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+                if (fileIndex == 3) {
+                    service.markAsFailedIfNotCreated(analysisModel.getId());
+                }
+            }));
+        }
+        for (Future<?> file : files) {
+            file.get();
+        }
+        executorService.shutdown();
+        service.setWorkloadSummaryReportModelAndUpdateStatus(new WorkloadSummaryReportModel(), analysisModel.getId());
+
+        assertThat(service.findByOwnerAndId("user name", analysisModel.getId()).getStatus()).isEqualToIgnoringCase(AnalysisService.STATUS.FAILED.toString());
+        assertThat(workloadInventoryReportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId()).size()).isEqualTo(400);
+    }
+
+    @Test
+    public void analysisService_WorkloadSummaryReportGiven_ShouldMarkTheAnalysisAsCreated() {
+        AnalysisModel analysisModel = service.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        service.setWorkloadSummaryReportModelAndUpdateStatus(new WorkloadSummaryReportModel(), analysisModel.getId());
+        assertThat(service.findByOwnerAndId("user name", analysisModel.getId()).getStatus()).isEqualToIgnoringCase(AnalysisService.STATUS.CREATED.toString());
+    }
 }
@@ -0,0 +1,89 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.apache.camel.test.spring.CamelSpringBootRunner;
+import org.apache.camel.test.spring.UseAdviceWith;
+import org.jboss.xavier.Application;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.InitialSavingsEstimationReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(CamelSpringBootRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(classes = {Application.class})
+@UseAdviceWith // Disables automatic start of Camel context
+@ActiveProfiles("test")
+public class CacheValidatorServiceTest {
+
+    @Inject
+    private AnalysisService analysisService;
+
+    @Inject
+    private CacheValidatorService cacheValidatorService;
+
+    @Test
+    public void cacheValidatorService_ReportModelsSavedGiven_ShouldChangeTheETagOfTheAnalyses() throws Exception {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        Long id = analysisModel.getId();
+
+        String eTag = getAnalysesETag();
+        String analysisETag = getAnalysisETag(id);
+
+        InitialSavingsEstimationReportModel initialSavingsEstimationReportModel = new InitialSavingsEstimationReportModel();
+        initialSavingsEstimationReportModel.setCreationDate(new Date());
+        waitForTheNextLastUpdate();
+        analysisService.setInitialSavingsEstimationReportModel(initialSavingsEstimationReportModel, id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+        assertThat(getAnalysisETag(id)).isNotEqualTo(analysisETag);
+        eTag = getAnalysesETag();
+
+        WorkloadInventoryReportModel workloadInventoryReportModel = new WorkloadInventoryReportModel();
+        workloadInventoryReportModel.setVmName("vm-1");
+        waitForTheNextLastUpdate();
+        analysisService.addWorkloadInventoryReportModels(Collections.singletonList(workloadInventoryReportModel), id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+        eTag = getAnalysesETag();
+
+        waitForTheNextLastUpdate();
+        analysisService.setWorkloadSummaryReportModel(new WorkloadSummaryReportModel(), id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+        eTag = getAnalysesETag();
+
+        waitForTheNextLastUpdate();
+        analysisService.setWorkloadSummaryReportModelAndUpdateStatus(new WorkloadSummaryReportModel(), id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+        eTag = getAnalysesETag();
+
+        waitForTheNextLastUpdate();
+        analysisService.updatePayloadStorageId("payloadStorageId", id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+        eTag = getAnalysesETag();
+
+        analysisService.deleteById(id);
+        assertThat(getAnalysesETag()).isNotEqualTo(eTag);
+    }
+
+    private String getAnalysesETag() {
+        return cacheValidatorService.findByOwnerAndPath("user name", "/report", null).getETag();
+    }
+
+    private String getAnalysisETag(Long id) {
+        return cacheValidatorService.findByOwnerAndPath("user name", "/report/" + id, null).getETag();
+    }
+
+    // the last update has the precision of a millisecond
+    private static void waitForTheNextLastUpdate() throws InterruptedException {
+        Thread.sleep(2);
+    }
+}
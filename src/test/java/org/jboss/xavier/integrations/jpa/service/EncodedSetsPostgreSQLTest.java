@@ -0,0 +1,121 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.apache.camel.test.spring.CamelSpringBootRunner;
+import org.apache.camel.test.spring.UseAdviceWith;
+import org.jboss.xavier.Application;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.FlagModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadModel;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportElementCollectionsMigration;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@RunWith(CamelSpringBootRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(classes = {Application.class})
+@ContextConfiguration(initializers = EncodedSetsPostgreSQLTest.Initializer.class)
+@UseAdviceWith // Disables automatic start of Camel context
+@ActiveProfiles("test")
+public class EncodedSetsPostgreSQLTest {
+
+    @ClassRule
+    public static PostgreSQLContainer postgreSQL = new PostgreSQLContainer()
+            .withDatabaseName("sampledb")
+            .withUsername("admin")
+            .withPassword("redhat");
+
+    @Inject
+    private AnalysisService analysisService;
+
+    @Inject
+    private WorkloadService workloadService;
+
+    @Inject
+    private FlagService flagService;
+
+    @Inject
+    private WorkloadInventoryReportRepository workloadInventoryReportRepository;
+
+    @Inject
+    private WorkloadInventoryReportElementCollectionsMigration migration;
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    public static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        @Override
+        public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+            EnvironmentTestUtils.addEnvironment("environment", configurableApplicationContext.getEnvironment(),
+                    "spring.datasource.url=" + postgreSQL.getJdbcUrl(),
+                    "spring.datasource.username=" + postgreSQL.getUsername(),
+                    "spring.datasource.password=" + postgreSQL.getPassword(),
+                    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQL9Dialect");
+        }
+    }
+
+    @Test
+    public void calculateModels_EncodedSetsGiven_ShouldSplitAndOrderThemInTheDatabase() {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        analysisService.addWorkloadInventoryReportModels(Arrays.asList(
+                buildReportModel("vm-1", "cluster-1", Arrays.asList("Oracle", "jboss"), Arrays.asList("Shared|Disk\\")),
+                buildReportModel("vm-2", "cluster-2", Arrays.asList("jboss"), Arrays.asList("Shared|Disk\\", "RDM"))
+        ), analysisModel.getId());
+
+        // the database collation, unlike the natural order of Java, doesn't sort the upper case letters first
+        List<WorkloadModel> workloadModels = workloadService.calculateWorkloadsModels(analysisModel.getId());
+        assertThat(workloadModels).extracting("workload", "osName", "clusters", "vms")
+                .containsExactly(tuple("jboss", "RHEL", 2, 2), tuple("Oracle", "RHEL", 1, 1));
+
+        List<FlagModel> flagModels = flagService.calculateFlagModels(analysisModel.getId());
+        assertThat(flagModels).extracting("flag", "osName", "clusters", "vms")
+                .containsExactly(tuple("Shared|Disk\\", "RHEL", 2, 2), tuple("RDM", "RHEL", 1, 1));
+    }
+
+    @Test
+    public void migrate_ElementCollectionTableGiven_ShouldEncodeItsRowsOnceAndKeepItRenamed() throws Exception {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        WorkloadInventoryReportModel reportModel = buildReportModel("vm-1", "cluster-1", null, null);
+        reportModel.setAnalysis(analysisModel);
+        workloadInventoryReportRepository.save(reportModel);
+        jdbcTemplate.execute("create table workload_inventory_report_model_workloads (workload_inventory_report_model_id int8 not null, workloads varchar(255))");
+        jdbcTemplate.update("insert into workload_inventory_report_model_workloads values (?, 'jboss'), (?, 'Oracle')", reportModel.getId(), reportModel.getId());
+
+        migration.migrate();
+        migration.migrate();
+
+        assertThat(workloadInventoryReportRepository.findOne(reportModel.getId()).getWorkloads()).containsOnly("jboss", "Oracle");
+        assertThat(jdbcTemplate.queryForObject("select workloads from workload_inventory_report_model where id = ?", String.class, reportModel.getId()))
+                .isEqualTo("|Oracle|jboss|");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from workload_inventory_report_model_workloads_migrated", Integer.class)).isEqualTo(2);
+    }
+
+    private WorkloadInventoryReportModel buildReportModel(String vmName, String cluster, List<String> workloads, List<String> flags) {
+        WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+        reportModel.setVmName(vmName);
+        reportModel.setCluster(cluster);
+        reportModel.setOsName("RHEL");
+        if (workloads != null) reportModel.setWorkloads(new HashSet<>(workloads));
+        if (flags != null) reportModel.setFlagsIMS(new HashSet<>(flags));
+        return reportModel;
+    }
+}
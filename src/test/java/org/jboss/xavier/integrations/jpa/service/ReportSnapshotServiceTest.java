@@ -0,0 +1,92 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.apache.camel.test.spring.CamelSpringBootRunner;
+import org.apache.camel.test.spring.UseAdviceWith;
+import org.apache.commons.io.IOUtils;
+import org.jboss.xavier.Application;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.ReportSnapshotModel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(CamelSpringBootRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(classes = {Application.class})
+@UseAdviceWith // Disables automatic start of Camel context
+@ActiveProfiles("test")
+public class ReportSnapshotServiceTest {
+
+    private static final byte[] JSON = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Inject
+    private AnalysisService analysisService;
+
+    @Inject
+    private ReportSnapshotService reportSnapshotService;
+
+    @Test
+    public void reportSnapshotService_AnalysisInProgressGiven_ShouldNotStoreTheSnapshot() throws Exception {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+
+        Date analysisLastUpdate = reportSnapshotService.findCreatedAnalysisLastUpdate("user name", analysisModel.getId());
+        assertThat(analysisLastUpdate).isNull();
+        ReportSnapshotModel reportSnapshotModel = reportSnapshotService.snapshot("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY, analysisLastUpdate, JSON);
+
+        assertThat(reportSnapshotModel.getId()).isNull();
+        assertThat(IOUtils.toByteArray(reportSnapshotService.openContent(reportSnapshotModel))).isEqualTo(JSON);
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+    }
+
+    @Test
+    public void reportSnapshotService_AnalysisCreatedGiven_ShouldStoreTheSnapshotForTheOwnerUntilTheAnalysisIsDeleted() throws Exception {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        analysisService.updateStatus(AnalysisService.STATUS.CREATED.toString(), analysisModel.getId());
+
+        Date analysisLastUpdate = reportSnapshotService.findCreatedAnalysisLastUpdate("user name", analysisModel.getId());
+        assertThat(analysisLastUpdate).isNotNull();
+        ReportSnapshotModel reportSnapshotModel = reportSnapshotService.snapshot("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY, analysisLastUpdate, JSON);
+        // a concurrent request
+        reportSnapshotService.snapshot("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY, analysisLastUpdate, JSON);
+
+        ReportSnapshotModel storedReportSnapshotModel = reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY);
+        assertThat(storedReportSnapshotModel).isNotNull();
+        assertThat(storedReportSnapshotModel.getEtag()).isEqualTo(reportSnapshotModel.getEtag()).startsWith("\"").endsWith("\"");
+        assertThat(IOUtils.toByteArray(reportSnapshotService.openContent(storedReportSnapshotModel))).isEqualTo(JSON);
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("whatever", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.INITIAL_SAVINGS_ESTIMATION)).isNull();
+
+        analysisService.deleteById(analysisModel.getId());
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+    }
+
+    @Test
+    public void reportSnapshotService_AnalysisChangedAfterTheSnapshotGiven_ShouldDiscardTheStaleSnapshot() throws Exception {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        analysisService.updateStatus(AnalysisService.STATUS.CREATED.toString(), analysisModel.getId());
+        Date analysisLastUpdate = reportSnapshotService.findCreatedAnalysisLastUpdate("user name", analysisModel.getId());
+
+        // the report has been read before a later update of the analysis
+        reportSnapshotService.snapshot("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY, new Date(analysisLastUpdate.getTime() - 1000), JSON);
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+
+        // the stale snapshot has been deleted, so the current one can be stored
+        ReportSnapshotModel reportSnapshotModel = reportSnapshotService.snapshot("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY, analysisLastUpdate, JSON);
+        assertThat(reportSnapshotModel.getId()).isNotNull();
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNotNull();
+
+        // the analysis is no longer created
+        analysisService.updateStatus(AnalysisService.STATUS.IN_PROGRESS.toString(), analysisModel.getId());
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+        analysisService.updateStatus(AnalysisService.STATUS.CREATED.toString(), analysisModel.getId());
+        assertThat(reportSnapshotService.findByAnalysisOwnerAndAnalysisIdAndReportType("user name", analysisModel.getId(), ReportSnapshotModel.ReportType.WORKLOAD_SUMMARY)).isNull();
+    }
+}
@@ -0,0 +1,128 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.apache.camel.test.spring.CamelSpringBootRunner;
+import org.apache.camel.test.spring.UseAdviceWith;
+import org.jboss.xavier.Application;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportBulkWriter;
+import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CamelSpringBootRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(classes = {Application.class})
+@ContextConfiguration(initializers = WorkloadInventoryReportBulkWriterTest.Initializer.class)
+@UseAdviceWith // Disables automatic start of Camel context
+@ActiveProfiles("test")
+public class WorkloadInventoryReportBulkWriterTest {
+
+    @ClassRule
+    public static PostgreSQLContainer postgreSQL = new PostgreSQLContainer()
+            .withDatabaseName("sampledb")
+            .withUsername("admin")
+            .withPassword("redhat");
+
+    private static TimeZone defaultTimeZone;
+
+    @Inject
+    private AnalysisService analysisService;
+
+    @Inject
+    private WorkloadInventoryReportBulkWriter workloadInventoryReportBulkWriter;
+
+    @Inject
+    private WorkloadInventoryReportRepository workloadInventoryReportRepository;
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    public static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        @Override
+        public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+            EnvironmentTestUtils.addEnvironment("environment", configurableApplicationContext.getEnvironment(),
+                    "spring.datasource.url=" + postgreSQL.getJdbcUrl(),
+                    "spring.datasource.username=" + postgreSQL.getUsername(),
+                    "spring.datasource.password=" + postgreSQL.getPassword(),
+                    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQL9Dialect");
+        }
+    }
+
+    @BeforeClass
+    public static void setUpTimeZone() {
+        // a zone with an offset different from the database's one, not a whole number of hours
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+    }
+
+    @AfterClass
+    public static void restoreTimeZone() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void insert_ReportGiven_ShouldWriteWithCopyTheSameRowAsJPA() {
+        assertThat(workloadInventoryReportBulkWriter.isSupported()).isTrue();
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        Date creationDate = new Date(1572566400123L);
+
+        WorkloadInventoryReportModel copiedReportModel = buildReportModel(creationDate);
+        workloadInventoryReportBulkWriter.insert(Collections.singletonList(copiedReportModel), analysisModel.getId());
+        WorkloadInventoryReportModel savedReportModel = buildReportModel(creationDate);
+        savedReportModel.setAnalysis(analysisModel);
+        workloadInventoryReportRepository.save(savedReportModel);
+
+        Map<String, Object> copiedRow = jdbcTemplate.queryForMap("select * from workload_inventory_report_model where id = ?", copiedReportModel.getId());
+        Map<String, Object> savedRow = jdbcTemplate.queryForMap("select * from workload_inventory_report_model where id = ?", savedReportModel.getId());
+        copiedRow.remove("id");
+        savedRow.remove("id");
+        assertThat(copiedRow).isEqualTo(savedRow);
+        assertThat(workloadInventoryReportRepository.findOne(copiedReportModel.getId()).getCreationDate().getTime()).isEqualTo(creationDate.getTime());
+    }
+
+    private WorkloadInventoryReportModel buildReportModel(Date creationDate) {
+        WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+        reportModel.setProvider("VMware");
+        reportModel.setDatacenter("V2V-DC");
+        reportModel.setCluster("V2V_Cluster");
+        reportModel.setVmName("vm \"quoted\", name");
+        reportModel.setOsName("Red Hat Enterprise Linux Server release 7.6 (Maipo)");
+        reportModel.setOsDescription("");
+        reportModel.setDiskSpace(17980588032L);
+        reportModel.setMemory(4294967296L);
+        reportModel.setCpuCores(2);
+        reportModel.setComplexity("Easy");
+        reportModel.setProduct("VMware vCenter");
+        reportModel.setVersion("6.7.2");
+        reportModel.setHost_name("esx13.v2v.bos.redhat.com");
+        reportModel.setCreationDate(creationDate);
+        reportModel.setSsaEnabled(true);
+        reportModel.setWorkloads(new HashSet<>(Arrays.asList("Tomcat", "Oracle")));
+        reportModel.addRecommendedTargetsIMS("RHV");
+        reportModel.addFlagIMS("Shared Disk");
+        return reportModel;
+    }
+}
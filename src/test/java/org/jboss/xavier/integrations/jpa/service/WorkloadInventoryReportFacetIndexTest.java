@@ -0,0 +1,87 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkloadInventoryReportFacetIndexTest {
+
+    private final WorkloadInventoryReportFacetIndex facetIndex = new WorkloadInventoryReportFacetIndex("user name", Arrays.asList(
+            report(3L, "VMware", "vm-b", 2048L, "Easy", "Tomcat"),
+            report(1L, "VMware", "vm-a", 1024L, "Hard", "Tomcat", "JBoss EAP"),
+            report(2L, "RHV", "vm-c", null, "Easy"),
+            report(4L, null, "other", 4096L, "Medium", "JBoss EAP")
+    ), true);
+
+    private static WorkloadInventoryReportModel report(Long id, String provider, String vmName, Long memory, String complexity, String... workloads) {
+        WorkloadInventoryReportModel workloadInventoryReportModel = new WorkloadInventoryReportModel();
+        workloadInventoryReportModel.setId(id);
+        workloadInventoryReportModel.setProvider(provider);
+        workloadInventoryReportModel.setVmName(vmName);
+        workloadInventoryReportModel.setMemory(memory);
+        workloadInventoryReportModel.setComplexity(complexity);
+        workloadInventoryReportModel.setWorkloads(new HashSet<>(Arrays.asList(workloads)));
+        return workloadInventoryReportModel;
+    }
+
+    private static List<Long> ids(List<WorkloadInventoryReportModel> workloadInventoryReportModels) {
+        return workloadInventoryReportModels.stream().map(WorkloadInventoryReportModel::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void match_FilterGiven_ShouldMatchAnyValueWithinAFacetAndAllTheFacets() {
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setProviders(new HashSet<>(Arrays.asList(" vmware", "RHV")));
+        filterBean.setVmNames(Collections.singleton("VM-"));
+        filterBean.setWorkloads(Collections.singleton("Tomcat"));
+
+        BitSet matches = facetIndex.match(filterBean);
+
+        assertThat(ids(facetIndex.page(matches, "id", true, 0, 10))).containsExactly(1L, 3L);
+        assertThat(ids(facetIndex.page(facetIndex.match(new WorkloadInventoryFilterBean()), "id", true, 0, 10))).containsExactly(1L, 2L, 3L, 4L);
+
+        filterBean.setWorkloads(Collections.singleton("tomcat"));
+        assertThat(facetIndex.match(filterBean).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void page_SortGiven_ShouldSkipTheOffsetInTheOrderOfTheField() {
+        BitSet matches = facetIndex.match(new WorkloadInventoryFilterBean());
+
+        assertThat(ids(facetIndex.page(matches, "memory", true, 1, 2))).containsExactly(3L, 4L);
+        assertThat(ids(facetIndex.page(matches, "memory", false, 0, 2))).containsExactly(2L, 4L);
+        assertThat(ids(facetIndex.page(matches, "id", false, 3, 2))).containsExactly(1L);
+        assertThat(WorkloadInventoryReportFacetIndex.isSortable("workloads")).isFalse();
+        // the text fields follow the collation of the database
+        assertThat(WorkloadInventoryReportFacetIndex.isSortable("vmName")).isFalse();
+        assertThat(WorkloadInventoryReportFacetIndex.isSortable(null)).isFalse();
+    }
+
+    @Test
+    public void countFacets_FilterGiven_ShouldCountTheValuesOfAFacetDisregardingItsOwnFilter() {
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setProviders(Collections.singleton("VMware"));
+        filterBean.setComplexities(Collections.singleton("Easy"));
+
+        Map<String, Map<String, Long>> facetCounts = facetIndex.countFacets(filterBean);
+
+        assertThat(facetCounts.get("providers")).containsOnlyKeys("VMware", "RHV");
+        assertThat(facetCounts.get("providers").get("VMware")).isEqualTo(1L);
+        assertThat(facetCounts.get("providers").get("RHV")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities").get("Easy")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities").get("Hard")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities")).doesNotContainKey("Medium");
+        assertThat(facetCounts.get("workloads").get("Tomcat")).isEqualTo(1L);
+        assertThat(facetCounts.get("workloads")).doesNotContainKey("JBoss EAP");
+    }
+}
@@ -2,9 +2,13 @@ package org.jboss.xavier.integrations.jpa.service;
 
 import org.apache.camel.test.spring.CamelSpringBootRunner;
 import org.apache.camel.test.spring.UseAdviceWith;
+import org.apache.commons.io.IOUtils;
 import org.jboss.xavier.Application;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.WorkloadInventoryReportFiltersModel;
 import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.integrations.route.model.CursorPage;
+import org.jboss.xavier.integrations.route.model.FacetedPage;
 import org.jboss.xavier.integrations.route.model.PageBean;
 import org.jboss.xavier.integrations.route.model.SortBean;
 import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
@@ -15,14 +19,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.inject.Inject;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
@@ -192,4 +202,279 @@ public class WorkloadInventoryReportServiceTest {
         assertThat(order4).isNotNull();
         assertThat(order4.getDirection()).isEqualTo(Sort.Direction.ASC);
     }
+
+    @Test
+    public void workloadInventoryReportService_updateComplexityAndFlagsIMS_ShouldUpdateOnlyTheReportsOfTheOwner() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        WorkloadInventoryReportModel reportModel0 = new WorkloadInventoryReportModel();
+        reportModel0.setVmName("host-0");
+        reportModel0.setComplexity("Easy");
+        WorkloadInventoryReportModel reportModel1 = new WorkloadInventoryReportModel();
+        reportModel1.setVmName("host-1");
+        reportModel1.setComplexity("Easy");
+        analysisService.addWorkloadInventoryReportModels(Arrays.asList(reportModel0, reportModel1), analysisModel.getId());
+
+        List<WorkloadInventoryReportModel> reevaluatedReportModels = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId());
+        reevaluatedReportModels.forEach(reportModel -> {
+            reportModel.setComplexity("Medium");
+            reportModel.setFlagsIMS(new HashSet<>(Collections.singleton("Shared Disk")));
+        });
+
+        // When
+        List<WorkloadInventoryReportModel> notOwnedReportModels = reportService.updateComplexityAndFlagsIMS("whatever", reevaluatedReportModels);
+        List<WorkloadInventoryReportModel> updatedReportModels = reportService.updateComplexityAndFlagsIMS("user name", reevaluatedReportModels);
+
+        // Then
+        assertThat(notOwnedReportModels).isEmpty();
+        assertThat(updatedReportModels.size()).isEqualTo(2);
+        List<WorkloadInventoryReportModel> persistedReportModels = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId());
+        assertThat(persistedReportModels.stream().allMatch(reportModel -> "Medium".equals(reportModel.getComplexity()))).isTrue();
+        assertThat(persistedReportModels.stream().allMatch(reportModel -> reportModel.getFlagsIMS().contains("Shared Disk"))).isTrue();
+    }
+
+    @Test
+    public void workloadInventoryReportService_FlagsIMSGiven_ShouldFilterByTheWholeFlagAndListTheAvailableFlags() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        WorkloadInventoryReportModel reportModel0 = new WorkloadInventoryReportModel();
+        reportModel0.setVmName("host-0");
+        reportModel0.setFlagsIMS(new HashSet<>(Arrays.asList("Shared Disk", "RDM|100%")));
+        WorkloadInventoryReportModel reportModel1 = new WorkloadInventoryReportModel();
+        reportModel1.setVmName("host-1");
+        reportModel1.setFlagsIMS(new HashSet<>(Collections.singletonList("Shared Disk Array")));
+        WorkloadInventoryReportModel reportModel2 = new WorkloadInventoryReportModel();
+        reportModel2.setVmName("host-2");
+        analysisService.addWorkloadInventoryReportModels(Arrays.asList(reportModel0, reportModel1, reportModel2), analysisModel.getId());
+
+        // When
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setFlagsIMS(new HashSet<>(Collections.singletonList("Shared Disk")));
+        Page<WorkloadInventoryReportModel> sharedDiskResult = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean("vmName", true), filterBean);
+        filterBean.setFlagsIMS(new HashSet<>(Collections.singletonList("RDM|100%")));
+        Page<WorkloadInventoryReportModel> rdmResult = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean("vmName", true), filterBean);
+        WorkloadInventoryReportFiltersModel filters = reportService.findAvailableFiltersByAnalysisId(analysisModel.getId());
+
+        // Then
+        assertThat(sharedDiskResult.getContent()).extracting(WorkloadInventoryReportModel::getVmName).containsExactly("host-0");
+        assertThat(rdmResult.getContent()).extracting(WorkloadInventoryReportModel::getVmName).containsExactly("host-0");
+        assertThat(rdmResult.getContent().get(0).getFlagsIMS()).containsOnly("Shared Disk", "RDM|100%");
+        assertThat(filters.getFlagsIMS()).containsOnly("Shared Disk", "RDM|100%", "Shared Disk Array");
+        assertThat(filters.getWorkloads()).isEmpty();
+    }
+
+    @Test
+    public void workloadInventoryReportService_findByAnalysisOwnerAndAnalysisIdAfterCursor_ShouldWalkThroughAllTheReportsInTheDefaultOrder() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+            // some reports without provider and cluster
+            reportModel.setProvider(i % 3 == 0 ? null : "provider-" + (i % 2));
+            reportModel.setDatacenter("datacenter");
+            reportModel.setCluster(i % 4 == 0 ? null : "cluster-" + (i % 3));
+            reportModel.setVmName("host-" + i);
+            reportModels.add(reportModel);
+        }
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+
+        for (boolean orderAsc : Arrays.asList(true, false)) {
+            SortBean sortBean = new SortBean(null, orderAsc);
+            List<String> expectedVmNames = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId(), new PageBean(0, 10), sortBean, filterBean)
+                    .getContent().stream().map(WorkloadInventoryReportModel::getVmName).collect(Collectors.toList());
+
+            // When
+            List<String> vmNames = new ArrayList<>();
+            CursorPage<WorkloadInventoryReportModel> page = reportService.findByAnalysisOwnerAndAnalysisIdAfterCursor("user name", analysisModel.getId(), "", new PageBean(0, 3), sortBean, filterBean, true);
+            page.getContent().forEach(reportModel -> vmNames.add(reportModel.getVmName()));
+            assertThat(page.getTotalElements()).isEqualTo(7L);
+            while (!page.isLast()) {
+                page = reportService.findByAnalysisOwnerAndAnalysisIdAfterCursor("user name", analysisModel.getId(), page.getNextCursor(), new PageBean(0, 3), sortBean, filterBean, false);
+                assertThat(page.getTotalElements()).isNull();
+                page.getContent().forEach(reportModel -> vmNames.add(reportModel.getVmName()));
+            }
+
+            // Then
+            assertThat(vmNames).isEqualTo(expectedVmNames);
+            assertThat(vmNames).hasSize(7);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void workloadInventoryReportService_findByAnalysisOwnerAndAnalysisIdAfterCursor_InvalidCursorGiven_ShouldThrowException() {
+        reportService.findByAnalysisOwnerAndAnalysisIdAfterCursor("user name", 1L, "not-a-cursor", new PageBean(0, 3), new SortBean(null, true), new WorkloadInventoryFilterBean(), false);
+    }
+
+    @Test
+    public void workloadInventoryReportService_ClustersAndVmNameGiven_ShouldFilterIgnoringTheCase() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        for (String cluster : Arrays.asList("Cluster-A", "cluster-b", "Cluster-C", null)) {
+            WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+            reportModel.setCluster(cluster);
+            reportModel.setVmName("DB-server-" + cluster);
+            reportModels.add(reportModel);
+        }
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+
+        // When
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setClusters(new HashSet<>(Arrays.asList(" cluster-a ", "CLUSTER-B", "cluster-c")));
+        filterBean.setVmNames(new HashSet<>(Collections.singletonList("db-SERVER")));
+        Page<WorkloadInventoryReportModel> result = reportService.findByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean("cluster", true), filterBean);
+
+        // Then
+        assertThat(result.getContent()).extracting(WorkloadInventoryReportModel::getCluster).containsOnly("Cluster-A", "cluster-b", "Cluster-C");
+    }
+
+    @Test
+    public void workloadInventoryReportService_findByAnalysisOwnerAndAnalysisIdWithFacetCounts_AnalysisNotIndexedGiven_ShouldCountTheFacetsInTheDatabase() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        reportModels.add(facetReport("VMware", "vm-b", "Easy", "Tomcat"));
+        reportModels.add(facetReport("VMware", "vm-a", "Hard", "Tomcat", "JBoss EAP"));
+        reportModels.add(facetReport("RHV", "vm-c", "Easy"));
+        reportModels.add(facetReport(null, "other", "Medium", "JBoss EAP"));
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+
+        // When
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setProviders(Collections.singleton("VMware"));
+        filterBean.setComplexities(Collections.singleton("Easy"));
+        FacetedPage<WorkloadInventoryReportModel> result = reportService.findByAnalysisOwnerAndAnalysisIdWithFacetCounts("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean(null, true), filterBean);
+
+        // Then
+        assertThat(result.getContent()).extracting(WorkloadInventoryReportModel::getVmName).containsOnly("vm-b");
+        Map<String, Map<String, Long>> facetCounts = result.getFacetCounts();
+        assertThat(facetCounts.get("providers")).containsOnlyKeys("VMware", "RHV");
+        assertThat(facetCounts.get("providers").get("VMware")).isEqualTo(1L);
+        assertThat(facetCounts.get("providers").get("RHV")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities").get("Easy")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities").get("Hard")).isEqualTo(1L);
+        assertThat(facetCounts.get("complexities")).doesNotContainKey("Medium");
+        assertThat(facetCounts.get("workloads")).containsOnlyKeys("Tomcat");
+        assertThat(facetCounts.get("workloads").get("Tomcat")).isEqualTo(1L);
+    }
+
+    @Test
+    public void workloadInventoryReportService_findByAnalysisOwnerAndAnalysisIdWithFacetCounts_IndexedAnalysisGiven_ShouldMatchTheDatabase() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        reportModels.add(facetReport("VMware", "vm_b", "Easy", "Tomcat"));
+        reportModels.add(facetReport("VMware", "vm-a", "Hard", "Tomcat", "JBoss EAP"));
+        reportModels.add(facetReport("vmware", "VM_C", "Easy"));
+        reportModels.add(facetReport("RHV", "vmxb", "easy", "JBoss EAP"));
+        reportModels.add(facetReport(null, "other_vm", "Medium", "JBoss EAP"));
+        for (int i = 0; i < reportModels.size(); i++) {
+            reportModels.get(i).setMemory(i % 2 == 0 ? 1024L * (5 - i) : null);
+        }
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+        analysisService.updateStatus(AnalysisService.STATUS.CREATED.toString(), analysisModel.getId());
+
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setProviders(new HashSet<>(Arrays.asList("VMWARE", "RHV")));
+        filterBean.setComplexities(Collections.singleton("EASY"));
+        filterBean.setVmNames(Collections.singleton("VM_"));
+
+        // When
+        FacetedPage<WorkloadInventoryReportModel> indexed = reportService.findByAnalysisOwnerAndAnalysisIdWithFacetCounts("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean("memory", false), filterBean);
+        // the service is proxied for its transactional methods
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(reportService), "facetIndexEnabled", false);
+        reportService.evictCachedReports(analysisModel.getId());
+        FacetedPage<WorkloadInventoryReportModel> queried = reportService.findByAnalysisOwnerAndAnalysisIdWithFacetCounts("user name", analysisModel.getId(), new PageBean(0, 5), new SortBean("memory", false), filterBean);
+
+        // Then
+        assertThat(indexed.getContent()).extracting(WorkloadInventoryReportModel::getVmName).containsExactly("vm_b", "VM_C");
+        assertThat(indexed.getContent()).extracting(WorkloadInventoryReportModel::getId)
+                .containsExactlyElementsOf(queried.getContent().stream().map(WorkloadInventoryReportModel::getId).collect(Collectors.toList()));
+        assertThat(indexed.getTotalElements()).isEqualTo(queried.getTotalElements());
+        assertThat(indexed.getFacetCounts()).isEqualTo(queried.getFacetCounts());
+    }
+
+    private static WorkloadInventoryReportModel facetReport(String provider, String vmName, String complexity, String... workloads) {
+        WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+        reportModel.setProvider(provider);
+        reportModel.setVmName(vmName);
+        reportModel.setComplexity(complexity);
+        reportModel.setWorkloads(new HashSet<>(Arrays.asList(workloads)));
+        return reportModel;
+    }
+
+    @Test
+    public void workloadInventoryReportService_streamCsvByAnalysisOwnerAndAnalysisId_ShouldStreamAllTheReportsSortedAndFiltered() throws Exception {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+            reportModel.setVmName(String.format("vm-%02d", i));
+            reportModel.setCluster(i % 5 == 0 ? "cluster-a" : "cluster-b");
+            reportModel.setCreationDate(new Date());
+            reportModels.add(reportModel);
+        }
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+
+        // When
+        List<String> allLines;
+        try (InputStream csv = reportService.streamCsvByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId())) {
+            allLines = IOUtils.readLines(csv, StandardCharsets.UTF_8);
+        }
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+        filterBean.setClusters(Collections.singleton("cluster-a"));
+        List<String> filteredLines;
+        try (InputStream csv = reportService.streamCsvByAnalysisOwnerAndAnalysisId("user name", analysisModel.getId(), new SortBean("vmName", false), filterBean)) {
+            filteredLines = IOUtils.readLines(csv, StandardCharsets.UTF_8);
+            // the cursor is released at the end of the reports and closing the stream again is harmless
+            assertThat(csv.read()).isEqualTo(-1);
+        }
+        List<String> otherOwnerLines;
+        try (InputStream csv = reportService.streamCsvByAnalysisOwnerAndAnalysisId("whatever", analysisModel.getId())) {
+            otherOwnerLines = IOUtils.readLines(csv, StandardCharsets.UTF_8);
+        }
+
+        // Then
+        assertThat(allLines).hasSize(26);
+        assertThat(allLines.get(0)).contains("VM name");
+        assertThat(filteredLines).hasSize(6);
+        assertThat(String.join("\n", filteredLines)).doesNotContain("cluster-b");
+        assertThat(filteredLines.get(1)).contains("vm-20");
+        assertThat(filteredLines.get(5)).contains("vm-00");
+        assertThat(otherOwnerLines).hasSize(1);
+    }
+
+    @Test
+    public void workloadInventoryReportService_findAvailableFiltersByAnalysisId_ShouldCacheTheFiltersOfTheCreatedAnalysesUntilDeleted() {
+        // Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+        reportModel.setProvider("VMware");
+        reportModel.setCluster("cluster");
+        reportModel.setOsName("RHEL");
+        reportModel.setWorkloads(new HashSet<>(Arrays.asList("Tomcat", "EAP")));
+        analysisService.addWorkloadInventoryReportModels(Collections.singletonList(reportModel), analysisModel.getId());
+
+        // When
+        WorkloadInventoryReportFiltersModel inProgressFilters = reportService.findAvailableFiltersByAnalysisId(analysisModel.getId());
+        analysisService.updateStatus(AnalysisService.STATUS.CREATED.toString(), analysisModel.getId());
+        WorkloadInventoryReportFiltersModel createdFilters = reportService.findAvailableFiltersByAnalysisId(analysisModel.getId());
+        WorkloadInventoryReportFiltersModel cachedFilters = reportService.findAvailableFiltersByAnalysisId(analysisModel.getId());
+        analysisService.deleteById(analysisModel.getId());
+        WorkloadInventoryReportFiltersModel deletedFilters = reportService.findAvailableFiltersByAnalysisId(analysisModel.getId());
+
+        // Then
+        assertThat(inProgressFilters).isNotSameAs(createdFilters);
+        assertThat(cachedFilters).isSameAs(createdFilters);
+        assertThat(createdFilters.getProviders()).containsOnly("VMware");
+        assertThat(createdFilters.getClusters()).containsOnly("cluster");
+        assertThat(createdFilters.getDatacenters()).containsOnly((String) null);
+        assertThat(createdFilters.getOsNames()).containsOnly("RHEL");
+        assertThat(createdFilters.getWorkloads()).containsOnly("Tomcat", "EAP");
+        assertThat(createdFilters.getRecommendedTargetsIMS()).isEmpty();
+        assertThat(deletedFilters.getProviders()).isEmpty();
+    }
 }
@@ -0,0 +1,122 @@
+package org.jboss.xavier.integrations.jpa.service;
+
+import org.apache.camel.test.spring.CamelSpringBootRunner;
+import org.apache.camel.test.spring.UseAdviceWith;
+import org.jboss.xavier.Application;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.FlagModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.ScanRunModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.SummaryModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadModel;
+import org.jboss.xavier.analytics.pojo.output.workload.summary.WorkloadSummaryReportModel;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(CamelSpringBootRunner.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(classes = {Application.class})
+@ContextConfiguration(initializers = WorkloadSummaryReportPostgreSQLTest.Initializer.class)
+@UseAdviceWith // Disables automatic start of Camel context
+@ActiveProfiles("test")
+public class WorkloadSummaryReportPostgreSQLTest {
+
+    @ClassRule
+    public static PostgreSQLContainer postgreSQL = new PostgreSQLContainer()
+            .withDatabaseName("sampledb")
+            .withUsername("admin")
+            .withPassword("redhat");
+
+    @Inject
+    private AnalysisService analysisService;
+
+    @Inject
+    private WorkloadSummaryReportService workloadSummaryReportService;
+
+    @Inject
+    private SummaryService summaryService;
+
+    @Inject
+    private WorkloadService workloadService;
+
+    @Inject
+    private FlagService flagService;
+
+    @Inject
+    private ScanRunService scanRunService;
+
+    public static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        @Override
+        public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+            EnvironmentTestUtils.addEnvironment("environment", configurableApplicationContext.getEnvironment(),
+                    "spring.datasource.url=" + postgreSQL.getJdbcUrl(),
+                    "spring.datasource.username=" + postgreSQL.getUsername(),
+                    "spring.datasource.password=" + postgreSQL.getPassword(),
+                    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQL9Dialect");
+        }
+    }
+
+    @Test
+    public void calculateWorkloadSummaryReportModel_MixedCaseTextsGiven_ShouldSortTheModelsAsTheQueries() {
+        AnalysisModel analysisModel = analysisService.buildAndSave("reportName", "reportDescription", "payloadName", "user name");
+        // the database collation, unlike the natural order of Java, doesn't sort the upper case letters first
+        List<String> providers = Arrays.asList("vmware", "VMware", "RHV", "oVirt", null);
+        List<String> osNames = Arrays.asList("rhel", "Windows", "centos", null);
+        List<String> workloads = Arrays.asList("jboss", "Oracle", "tomcat", "Apache");
+        List<WorkloadInventoryReportModel> reportModels = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            WorkloadInventoryReportModel reportModel = new WorkloadInventoryReportModel();
+            reportModel.setVmName("vm-" + i);
+            reportModel.setProvider(providers.get(i % providers.size()));
+            reportModel.setProduct(i % 3 == 0 ? "vCenter" : "ovirt-engine");
+            reportModel.setVersion(i % 2 == 0 ? "6.7" : "4.3");
+            reportModel.setCluster("cluster-" + (i % 6));
+            reportModel.setOsName(osNames.get(i % osNames.size()));
+            reportModel.setCreationDate(new Date());
+            reportModel.setWorkloads(new HashSet<>(workloads.subList(i % workloads.size(), workloads.size())));
+            reportModel.setFlagsIMS(new HashSet<>(i % 3 == 0 ? Arrays.asList("shared disk", "RDM") : Arrays.asList("RDM")));
+            reportModels.add(reportModel);
+        }
+        analysisService.addWorkloadInventoryReportModels(reportModels, analysisModel.getId());
+
+        WorkloadSummaryReportModel workloadSummaryReportModel = workloadSummaryReportService.calculateWorkloadSummaryReportModel(analysisModel.getId());
+
+        Function<SummaryModel, List<Object>> summaryFields = model -> Arrays.asList(model.getProvider(), model.getProduct(), model.getVersion(), model.getHosts(), model.getClusters(), model.getSockets(), model.getVms());
+        assertThat(fields(workloadSummaryReportModel.getSummaryModels(), summaryFields)).isEqualTo(fields(summaryService.calculateSummaryModels(analysisModel.getId()), summaryFields));
+
+        Function<WorkloadModel, List<Object>> workloadFields = model -> Arrays.asList(model.getWorkload(), model.getOsName(), model.getClusters(), model.getVms());
+        assertThat(fields(workloadSummaryReportModel.getWorkloadModels(), workloadFields)).isEqualTo(fields(workloadService.calculateWorkloadsModels(analysisModel.getId()), workloadFields));
+
+        Function<FlagModel, List<Object>> flagFields = model -> Arrays.asList(model.getFlag(), model.getOsName(), model.getClusters(), model.getVms());
+        assertThat(fields(workloadSummaryReportModel.getFlagModels(), flagFields)).isEqualTo(fields(flagService.calculateFlagModels(analysisModel.getId()), flagFields));
+
+        // the scan runs are ordered by provider only
+        Function<ScanRunModel, List<Object>> scanRunFields = model -> Arrays.asList(model.getTarget());
+        assertThat(fields(workloadSummaryReportModel.getScanRunModels(), scanRunFields)).isEqualTo(fields(scanRunService.calculateScanRunModels(analysisModel.getId()), scanRunFields));
+    }
+
+    private static <T> List<List<Object>> fields(Collection<T> models, Function<T, List<Object>> fields) {
+        return models.stream().map(fields).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+package org.jboss.xavier.integrations.migrationanalytics.business;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CloudFormsPayloadTest {
+
+    @Test
+    public void parse_V1_0_0_JsonGiven_ShouldResolveManifestVersion() throws IOException {
+        String cloudFormsJson = IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, CloudFormsPayloadTest.class.getClassLoader());
+
+        CloudFormsPayload cloudFormsPayload = CloudFormsPayload.parse(cloudFormsJson);
+
+        assertThat(cloudFormsPayload.getManifestVersion()).isEqualTo("1_0_0");
+        assertThat(cloudFormsPayload.getDocument()).isNotNull();
+        assertThat(cloudFormsPayload.getInventoryIndex().getDocument()).isSameAs(cloudFormsPayload.getDocument());
+    }
+
+    @Test
+    public void parse_JsonWithoutManifestGiven_ShouldFallbackToVersion0() throws IOException {
+        try (InputStream cloudFormsJson = CloudFormsPayloadTest.class.getClassLoader().getResourceAsStream("cloudforms-export-v1.json")) {
+            CloudFormsPayload cloudFormsPayload = CloudFormsPayload.parse(cloudFormsJson);
+
+            assertThat(cloudFormsPayload.getManifestVersion()).isEqualTo("0");
+        }
+    }
+}
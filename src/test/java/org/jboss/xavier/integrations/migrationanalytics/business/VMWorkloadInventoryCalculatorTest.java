@@ -11,19 +11,30 @@ import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @RunWith(CamelSpringBootRunner.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -200,4 +211,77 @@ public class VMWorkloadInventoryCalculatorTest {
                 .findFirst().get().getCpuCores())
                 .isEqualTo(0);
     }
+
+    @Test
+    public void calculateStreaming_jsonV1_0_0_Given_ShouldReturnTheSameModelsAsCalculateInTheSameOrder() throws IOException {
+        String cloudFormsJson = IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, VMWorkloadInventoryCalculatorTest.class.getClassLoader());
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RouteBuilderExceptionHandler.ANALYSIS_ID, "30");
+
+        List<VMWorkloadInventoryModel> streamedModels = new ArrayList<>();
+        calculator.calculateStreaming(CloudFormsPayload.parse(cloudFormsJson), headers).forEachRemaining(streamedModels::add);
+
+        Collection<VMWorkloadInventoryModel> modelList = calculator.calculate(cloudFormsJson, headers);
+        assertThat(streamedModels).hasSize(modelList.size());
+        assertThat(streamedModels.stream().map(VMWorkloadInventoryModel::getVmName))
+                .containsExactlyElementsOf(modelList.stream().map(VMWorkloadInventoryModel::getVmName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void calculateStreaming_IteratorNotConsumedGiven_ShouldStopTheExtractionAfterTheHandOffTimeout() throws Exception {
+        ReflectionTestUtils.setField(calculator, "streamingQueueSize", 1);
+        ReflectionTestUtils.setField(calculator, "streamingHandOffTimeout", 200L);
+        String cloudFormsJson = IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, VMWorkloadInventoryCalculatorTest.class.getClassLoader());
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RouteBuilderExceptionHandler.ANALYSIS_ID, "30");
+
+        Iterator<VMWorkloadInventoryModel> iterator = calculator.calculateStreaming(CloudFormsPayload.parse(cloudFormsJson), headers);
+        Thread.sleep(2000);
+
+        assertThatThrownBy(() -> iterator.forEachRemaining(model -> {}))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("abandoned");
+    }
+
+    @Test
+    public void calculate_jsonsGivenFromMultipleThreads_ShouldReturnTheSameValuesAsSequentialCalls() throws Exception {
+        List<String> cloudFormsJsons = Arrays.asList(
+                IOUtils.resourceToString("cloudforms-export-v1.json", StandardCharsets.UTF_8, VMWorkloadInventoryCalculatorTest.class.getClassLoader()),
+                IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, VMWorkloadInventoryCalculatorTest.class.getClassLoader()));
+        int threads = 8;
+
+        // every call has its own analysis so that any state leaking between concurrent calls shows up in the results
+        List<Collection<VMWorkloadInventoryModel>> expectedModelLists = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            expectedModelLists.add(calculator.calculate(cloudFormsJsons.get(i % cloudFormsJsons.size()), analysisHeaders(i)));
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Collection<VMWorkloadInventoryModel>>> modelLists = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int call = i;
+                modelLists.add(executorService.submit(() -> {
+                    start.await();
+                    return calculator.calculate(cloudFormsJsons.get(call % cloudFormsJsons.size()), analysisHeaders(call));
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < threads; i++) {
+                assertThat(modelLists.get(i).get(1, TimeUnit.MINUTES))
+                        .usingFieldByFieldElementComparator()
+                        .containsExactlyInAnyOrderElementsOf(expectedModelLists.get(i));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> analysisHeaders(long analysisId) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RouteBuilderExceptionHandler.ANALYSIS_ID, Long.toString(analysisId));
+        return headers;
+    }
 }
@@ -0,0 +1,135 @@
+package org.jboss.xavier.integrations.migrationanalytics.business.indexing;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InventoryIndexTest {
+
+    private static final String V1_0_0_PROVIDERS = "$.ManageIQ::Providers::Vmware::InfraManager";
+    private static final String V0_PROVIDER = "$.ManageIQ::Providers::Vmware::InfraManager";
+
+    @Test
+    public void read_V1_0_0_PathsGiven_ShouldReturnSameValuesAsJsonPath() throws IOException {
+        DocumentContext document = JsonPath.parse(IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, InventoryIndexTest.class.getClassLoader()));
+        InventoryIndex inventoryIndex = new InventoryIndex(document);
+
+        List<String> paths = Arrays.asList(
+                V1_0_0_PROVIDERS + "[?(@.vms[?(@.id=={id})])].name",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].name",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].hardware.nics.length()",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].hardware.disks[*].size_on_disk",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].operating_system.product_type",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].files",
+                V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].host.ems_ref");
+
+        List<Map> vms = document.read(V1_0_0_PROVIDERS + "[*].vms[*]");
+        assertThat(vms).isNotEmpty();
+        for (Map vm : vms) {
+            for (String path : paths) {
+                assertThat(inventoryIndex.read(path, vm)).as(path).isEqualTo(document.read(InventoryIndex.expandParams(path, vm)));
+            }
+
+            Map<String, Object> params = new HashMap<>();
+            params.put("vmEmsCluster", ((List) inventoryIndex.read(V1_0_0_PROVIDERS + "[*].vms[?(@.id=={id})].host.ems_ref", vm)).stream().findFirst().orElse(null));
+            String emsClusterIdPath = V1_0_0_PROVIDERS + "[*].hosts[?(@.ems_ref == \"{vmEmsCluster}\")].ems_cluster.ems_ref";
+            assertThat(inventoryIndex.read(emsClusterIdPath, params)).isEqualTo(document.read(InventoryIndex.expandParams(emsClusterIdPath, params)));
+        }
+    }
+
+    @Test
+    public void read_V0_PathsGiven_ShouldReturnSameValuesAsJsonPath() throws IOException {
+        DocumentContext document = JsonPath.parse(IOUtils.resourceToString("cloudforms-export-v1.json", StandardCharsets.UTF_8, InventoryIndexTest.class.getClassLoader()));
+        InventoryIndex inventoryIndex = new InventoryIndex(document);
+
+        List<String> paths = Arrays.asList(
+                V0_PROVIDER + ".name",
+                V0_PROVIDER + ".hosts[*].vms[?(@.id == {id})].name",
+                V0_PROVIDER + ".hosts[*].vms[?(@.id == {id})].system_services[*].name",
+                V0_PROVIDER + ".hosts[*].vms[?(@.id == {id})].hardware.disks[*]",
+                V0_PROVIDER + ".hosts[?(@.id == {host_id})].hostname",
+                V0_PROVIDER + ".hosts[?(@.id == {host_id})].ems_cluster_id");
+
+        List<Map> vms = document.read(V0_PROVIDER + ".hosts[*].vms[*]");
+        assertThat(vms).isNotEmpty();
+        for (Map vm : vms) {
+            for (String path : paths) {
+                assertThat(inventoryIndex.read(path, vm)).as(path).isEqualTo(document.read(InventoryIndex.expandParams(path, vm)));
+            }
+        }
+    }
+
+    @Test
+    public void read_UnknownKeyGiven_ShouldReturnEmptyList() throws IOException {
+        DocumentContext document = JsonPath.parse(IOUtils.resourceToString("cloudforms-export-v1_0_0.json", StandardCharsets.UTF_8, InventoryIndexTest.class.getClassLoader()));
+        InventoryIndex inventoryIndex = new InventoryIndex(document);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", "-1");
+        assertThat((List) inventoryIndex.read(V1_0_0_PROVIDERS + "[*].vms[?(@.id == {id})].name", params)).isEmpty();
+    }
+
+    @Test
+    public void read_TypedIdsGiven_ShouldMatchTheSameElementsAsJsonPath() {
+        DocumentContext document = JsonPath.parse("{\"vms\": [" +
+                "{\"id\": 1, \"name\": \"number\"}, " +
+                "{\"id\": \"1\", \"name\": \"string\"}, " +
+                "{\"id\": \"01\", \"name\": \"padded string\"}, " +
+                "{\"id\": 10000000000, \"name\": \"long\"}, " +
+                "{\"id\": true, \"name\": \"boolean\"}, " +
+                "{\"id\": \"true\", \"name\": \"boolean string\"}, " +
+                "{\"id\": null, \"name\": \"null\"}, " +
+                "{\"name\": \"missing\"}]}");
+        InventoryIndex inventoryIndex = new InventoryIndex(document);
+
+        List<String> paths = Arrays.asList(
+                "$.vms[?(@.id == {id})].name",
+                "$.vms[?(@.id == \"{id}\")].name");
+        List<Object> ids = Arrays.asList(1, 1L, "1", "01", 10000000000L, "10000000000", true, false, "true", "missing", "");
+
+        for (String path : paths) {
+            for (Object id : ids) {
+                Map<String, Object> params = new HashMap<>();
+                params.put("id", id);
+                String expandedPath = InventoryIndex.expandParams(path, params);
+                Object expected;
+                try {
+                    expected = document.read(expandedPath);
+                } catch (InvalidPathException e) {
+                    assertThatThrownBy(() -> inventoryIndex.read(path, params)).as(expandedPath).isInstanceOf(InvalidPathException.class);
+                    continue;
+                }
+                assertThat(inventoryIndex.read(path, params)).as(expandedPath).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void read_DecimalIdsGiven_ShouldMatchTheSameElementsAsJsonPath() {
+        DocumentContext document = JsonPath.parse("{\"vms\": [" +
+                "{\"id\": 1, \"name\": \"integer\"}, " +
+                "{\"id\": 1.0, \"name\": \"decimal\"}, " +
+                "{\"id\": 1.5, \"name\": \"fraction\"}]}");
+        InventoryIndex inventoryIndex = new InventoryIndex(document);
+
+        String path = "$.vms[?(@.id == {id})].name";
+        for (Object id : Arrays.asList(1, 1.0, 1.5, "1.50")) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("id", id);
+            String expandedPath = InventoryIndex.expandParams(path, params);
+            assertThat(inventoryIndex.read(path, params)).as(expandedPath).isEqualTo(document.read(expandedPath));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.jboss.xavier.integrations.migrationanalytics.business.indexing;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathTemplateTest {
+
+    @Test
+    public void compile_SamePathGiven_ShouldReturnSameCompiledTemplate() {
+        String path = "$.ManageIQ::Providers::Vmware::InfraManager[*].vms[?(@.id == {id})].name";
+
+        assertThat(PathTemplate.compile(path)).isSameAs(PathTemplate.compile(path));
+        assertThat(PathTemplate.compile(path).hasPlaceholders()).isTrue();
+        assertThat(PathTemplate.compile(path).getFilter()).isNotNull();
+    }
+
+    @Test
+    public void compile_MorePathsThanTheCacheHoldsGiven_ShouldKeepTheRecentlyUsedOnesCompiled() {
+        String path = "$.ManageIQ::Providers::Vmware::InfraManager[*].vms[?(@.id == {id})].hardware.disks[*]";
+        PathTemplate template = PathTemplate.compile(path);
+
+        for (int i = 0; i < 2000; i++) {
+            String otherPath = "$.vms[?(@.id == {id})].attribute" + i;
+            assertThat(PathTemplate.compile(otherPath)).isSameAs(PathTemplate.compile(otherPath));
+            assertThat(PathTemplate.compile(path)).isSameAs(template);
+        }
+    }
+
+    @Test
+    public void compile_PathWithoutPlaceholdersGiven_ShouldCompileJsonPath() {
+        PathTemplate template = PathTemplate.compile("$.ManageIQ::Providers::Vmware::InfraManager.name");
+
+        assertThat(template.hasPlaceholders()).isFalse();
+        assertThat(template.getJsonPath()).isNotNull();
+        assertThat(template.getFilter()).isNull();
+    }
+
+    @Test
+    public void expand_ParamsGiven_ShouldReplaceEveryPlaceholder() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", 12);
+        params.put("vmEmsCluster", "host-1");
+
+        assertThat(PathTemplate.compile("$.hosts[?(@.ems_ref == \"{vmEmsCluster}\")].vms[?(@.id == {id})].name").expand(params))
+                .isEqualTo("$.hosts[?(@.ems_ref == \"host-1\")].vms[?(@.id == 12)].name");
+        assertThat(PathTemplate.compile("{id}-{missing}-{id}").expand(params)).isEqualTo("12--12");
+        assertThat(PathTemplate.compile("$.vms[?(@.id == {id})]").expand(null)).isEqualTo("$.vms[?(@.id == {id})]");
+    }
+}
@@ -58,7 +58,21 @@ public class ManifestVersionServiceTest {
         assertThat(manifestVersionServiceBean.getPropertyWithFallbackVersion("30", "vmworkloadinventory.providerPath")).isEqualToIgnoringCase("providerPath_v20_1_2");
     }
 
+    @Test
+    public void getPropertyWithFallbackVersion_PropertiesChangedAndRebuilt_ReturnsNewClosestHighestVersionValues() {
+        ManifestVersionService manifestVersionService = new ManifestVersionService();
+        Map<String,String> properties = new HashMap<>();
+        properties.put("cloudforms.manifest.1_0_0.primero", "val1");
+        properties.put("cloudforms.manifest.2_0_0.primero", "val2");
+        properties.put("cloudforms.manifest.2_0_0.segundo", "val3");
+        manifestVersionService.setProperties(properties);
+        assertThat(manifestVersionService.getPropertyWithFallbackVersion("1_5", "primero")).isEqualTo("val1");
+        assertThat(manifestVersionService.getPropertyWithFallbackVersion("2", "primero")).isEqualTo("val2");
+        assertThat(manifestVersionService.getPropertyWithFallbackVersion("1_5", "segundo")).isNull();
+        assertThat(manifestVersionService.getPropertyWithFallbackVersion("1_5", "tercero")).isNull();
 
-
-
+        properties.put("cloudforms.manifest.1_2_0.primero", "val4");
+        manifestVersionService.rebuild();
+        assertThat(manifestVersionService.getPropertyWithFallbackVersion("1_5", "primero")).isEqualTo("val4");
+    }
 }
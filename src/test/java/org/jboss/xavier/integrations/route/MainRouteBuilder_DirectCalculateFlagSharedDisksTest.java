@@ -8,6 +8,7 @@ import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInvento
 import org.jboss.xavier.integrations.jpa.service.AnalysisService;
 import org.jboss.xavier.integrations.jpa.service.WorkloadInventoryReportService;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import javax.inject.Inject;
@@ -20,6 +21,8 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -154,7 +157,11 @@ public class MainRouteBuilder_DirectCalculateFlagSharedDisksTest extends XavierC
         workloadInventoryReportModels.add(workloadInventoryReportModel1);
 
 
-        when(workloadInventoryReportService.findOneByOwnerAndId(analysisModel.getOwner(), wirId)).thenReturn(workloadInventoryReportModel1);
+        when(workloadInventoryReportService.updateComplexityAndFlagsIMS(eq(analysisModel.getOwner()), anyListOf(WorkloadInventoryReportModel.class))).thenAnswer(invocation -> {
+            List<WorkloadInventoryReportModel> reevaluatedWorkloadInventoryReportModels = (List<WorkloadInventoryReportModel>) invocation.getArguments()[1];
+            workloadInventoryReportModel1.setComplexity(reevaluatedWorkloadInventoryReportModels.get(0).getComplexity());
+            return workloadInventoryReportModels;
+        });
 
 
         camelContext.getRouteDefinition("extract-vmworkloadinventory").adviceWith(camelContext, new AdviceWithRouteBuilder() {
@@ -190,7 +197,10 @@ public class MainRouteBuilder_DirectCalculateFlagSharedDisksTest extends XavierC
         });
 
         //Then
-        verify(workloadInventoryReportService).saveAll(workloadInventoryReportModels);
+        ArgumentCaptor<List> reevaluatedWorkloadInventoryReportModels = ArgumentCaptor.forClass(List.class);
+        verify(workloadInventoryReportService).updateComplexityAndFlagsIMS(eq(analysisModel.getOwner()), reevaluatedWorkloadInventoryReportModels.capture());
+        assertThat(reevaluatedWorkloadInventoryReportModels.getValue().size()).isEqualTo(1);
+        assertThat(((WorkloadInventoryReportModel) reevaluatedWorkloadInventoryReportModels.getValue().get(0)).getId()).isEqualTo(wirId);
 
         List<WorkloadInventoryReportModel> updatedWorkloadInventoryReportModels = result.getIn().getBody(List.class);
         assertThat(updatedWorkloadInventoryReportModels).isNotNull();
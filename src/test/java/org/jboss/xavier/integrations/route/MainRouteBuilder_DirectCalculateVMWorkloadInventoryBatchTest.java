@@ -0,0 +1,68 @@
+package org.jboss.xavier.integrations.route;
+
+import org.apache.camel.EndpointInject;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.spring.MockEndpointsAndSkip;
+import org.apache.commons.io.IOUtils;
+import org.jboss.xavier.analytics.pojo.input.workload.inventory.VMWorkloadInventoryModel;
+import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
+import org.jboss.xavier.integrations.jpa.service.AnalysisService;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@MockEndpointsAndSkip("direct:vm-workload-inventory-batch")
+@TestPropertySource(properties = {"kieserver.batch.size=5"})
+public class MainRouteBuilder_DirectCalculateVMWorkloadInventoryBatchTest extends XavierCamelTest {
+    @Inject
+    AnalysisService analysisService;
+
+    @EndpointInject(uri = "mock:direct:vm-workload-inventory-batch")
+    private MockEndpoint mockVmWorkloadInventoryBatch;
+
+    @Test
+    public void mainRouteBuilder_DirectCalculate_JSONGivenAndBatchSize5_ShouldSendVMsInBatches() throws Exception {
+        //Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("report name", "report desc", "file name", "user name");
+
+        String fileName = "cloudforms-export-v1.json";
+        Long analysisId = analysisModel.getId();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("filename", fileName);
+        metadata.put("org_id", "CID123");
+        metadata.put(RouteBuilderExceptionHandler.ANALYSIS_ID, analysisId.toString());
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RouteBuilderExceptionHandler.MA_METADATA, metadata);
+
+        //When
+        camelContext.start();
+        camelContext.startRoute("calculate-vmworkloadinventory");
+        String body = IOUtils.resourceToString(fileName, StandardCharsets.UTF_8, this.getClass().getClassLoader());
+
+        camelContext.createProducerTemplate().sendBodyAndHeaders("direct:calculate-vmworkloadinventory", body, headers);
+
+        //Then
+        assertThat(mockVmWorkloadInventoryBatch.getExchanges().size()).isEqualTo(5);
+        assertThat(mockVmWorkloadInventoryBatch.getExchanges().stream()
+                .map(e -> (List<VMWorkloadInventoryModel>) e.getIn().getBody(List.class))
+                .peek(batch -> assertThat(batch.size()).isLessThanOrEqualTo(5))
+                .flatMap(List::stream)
+                .filter(vm -> vm.getVmName().equalsIgnoreCase("dev-windows-server-2008-TEST"))
+                .count()).isEqualTo(1);
+        assertThat(mockVmWorkloadInventoryBatch.getExchanges().stream()
+                .mapToInt(e -> e.getIn().getBody(List.class).size())
+                .sum()).isEqualTo(21);
+
+        camelContext.stop();
+    }
+}
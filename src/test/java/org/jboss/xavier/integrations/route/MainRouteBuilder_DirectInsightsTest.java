@@ -6,6 +6,7 @@ import org.apache.camel.builder.AdviceWithRouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.test.spring.MockEndpointsAndSkip;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
 import org.jboss.xavier.analytics.pojo.output.AnalysisModel;
 import org.jboss.xavier.integrations.jpa.service.AnalysisService;
@@ -13,6 +14,8 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.HashMap;
@@ -77,6 +80,47 @@ public class MainRouteBuilder_DirectInsightsTest extends XavierCamelTest {
         camelContext.stop();
     }
 
+    @Test
+    public void mainRouteBuilder_routeDirectInsights_LargeContentGiven_ShouldStreamItFromStreamCache() throws Exception {
+        //Given
+        String body = StringUtils.repeat("this is a large test body", 20000);
+        String filename = "testfilename.txt";
+        Map<String,Object> metadata = new HashMap<>();
+        metadata.put(RouteBuilderExceptionHandler.ANALYSIS_ID, "30");
+
+        Map<String,Object> headers = new HashMap<>();
+        headers.put("CamelFileName", filename);
+        headers.put(RouteBuilderExceptionHandler.MA_METADATA, metadata);
+
+        String rhidentity = "{\"identity\":{\"internal\":{\"auth_time\":0,\"auth_type\":\"jwt-auth\",\"org_id\":\"6340056\"},\"account_number\":\"1460290\",\"user\":{\"username\":\"mrizzi@redhat.com\"},\"type\":\"User\"}}";
+        headers.put("x-rh-identity", Base64.getEncoder().encodeToString(rhidentity.getBytes(StandardCharsets.UTF_8)));
+
+        camelContext.getRouteDefinition("call-insights-upload-service").adviceWith(camelContext, new AdviceWithRouteBuilder() {
+            @Override
+            public void configure() {
+                weaveByToUri("http4:.*").after().setHeader(Exchange.HTTP_RESPONSE_CODE, simple("200"));
+            }
+        });
+
+        mockInsightsServiceHttp4.expectedMessageCount(1);
+
+        //When
+        camelContext.start();
+        camelContext.startRoute("call-insights-upload-service");
+        camelContext.createProducerTemplate().sendBodyAndHeaders("direct:insights", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), headers);
+
+        //Then
+        mockInsightsServiceHttp4.assertIsSatisfied();
+
+        HttpEntity bodyResult = mockInsightsServiceHttp4.getExchanges().get(0).getIn().getBody(HttpEntity.class);
+        assertThat(bodyResult.getContentLength()).isGreaterThan(body.length());
+        ByteArrayOutputStream receivedBody = new ByteArrayOutputStream();
+        bodyResult.writeTo(receivedBody);
+        assertThat(receivedBody.toString(StandardCharsets.UTF_8.name())).contains(body);
+
+        camelContext.stop();
+    }
+
     @Test
     public void mainRouteBuilder_routeDirectInsights_UploadErrorGiven_ShouldMarkAnalysisAsFail() throws Exception {
         AnalysisModel analysisModel = analysisService.buildAndSave("report name", "report desc", "file name", "user name");
@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -86,6 +87,10 @@ public class MainRouteBuilder_SedaDownloadTest extends XavierCamelTest {
         assertThat(mockOldHost.getExchanges().get(0).getIn().getHeader(RouteBuilderExceptionHandler.MA_METADATA, Map.class).get("org_id")).isEqualTo("6340056");
         assertThat(mockOldHost.getExchanges().get(0).getIn().getHeader(RouteBuilderExceptionHandler.MA_METADATA, Map.class).get("auth_time")).isEqualTo("0");
         mockUnzipFile.assertIsSatisfied();
+        long expectedLength = new File(getClass().getClassLoader().getResource("cloudforms-export-v1_0_0.json").toURI()).length();
+        assertThat(mockUnzipFile.getExchanges().get(0).getIn().getHeader(Exchange.FILE_LENGTH, Long.class)).isEqualTo(expectedLength);
+        // the spooled payload is deleted once the exchange is done
+        assertThat(mockUnzipFile.getExchanges().get(0).getIn().getBody(File.class)).doesNotExist();
         assertThat(analysisService.findByOwnerAndId(analysisModel.getOwner(), analysisModel.getId()).getPayloadStorageId()).isEqualToIgnoringCase("S3KEY123");
         camelContext.stop();
     }
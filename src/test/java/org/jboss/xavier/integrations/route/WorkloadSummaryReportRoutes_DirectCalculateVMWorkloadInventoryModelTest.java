@@ -17,6 +17,13 @@ import org.jboss.xavier.integrations.jpa.repository.ScanRunRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadInventoryReportRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadRepository;
 import org.jboss.xavier.integrations.jpa.repository.WorkloadSummaryReportRepository;
+import org.jboss.xavier.integrations.jpa.service.ComplexityService;
+import org.jboss.xavier.integrations.jpa.service.FlagService;
+import org.jboss.xavier.integrations.jpa.service.RecommendedTargetsIMSService;
+import org.jboss.xavier.integrations.jpa.service.ScanRunService;
+import org.jboss.xavier.integrations.jpa.service.SummaryService;
+import org.jboss.xavier.integrations.jpa.service.WorkloadService;
+import org.jboss.xavier.integrations.jpa.service.WorkloadSummaryReportService;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -25,12 +32,14 @@ import org.springframework.data.domain.PageRequest;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -53,6 +62,27 @@ public class WorkloadSummaryReportRoutes_DirectCalculateVMWorkloadInventoryModel
     @Autowired
     WorkloadSummaryReportRepository workloadSummaryReportRepository;
 
+    @Autowired
+    WorkloadSummaryReportService workloadSummaryReportService;
+
+    @Autowired
+    SummaryService summaryService;
+
+    @Autowired
+    ComplexityService complexityService;
+
+    @Autowired
+    RecommendedTargetsIMSService recommendedTargetsIMSService;
+
+    @Autowired
+    WorkloadService workloadService;
+
+    @Autowired
+    FlagService flagService;
+
+    @Autowired
+    ScanRunService scanRunService;
+
     private Long analysisId;
     private int collectionSize = 6;
 
@@ -378,4 +408,31 @@ public class WorkloadSummaryReportRoutes_DirectCalculateVMWorkloadInventoryModel
 
         camelContext.stop();
     }
+
+    @Test
+    public void calculateWorkloadSummaryReportModel_ShouldMatchTheModelsCalculatedWithTheQueries() {
+        WorkloadSummaryReportModel workloadSummaryReportModel = workloadSummaryReportService.calculateWorkloadSummaryReportModel(analysisId);
+
+        Function<SummaryModel, List<Object>> summaryFields = model -> Arrays.asList(model.getProvider(), model.getProduct(), model.getVersion(), model.getHosts(), model.getClusters(), model.getSockets(), model.getVms());
+        Assert.assertEquals(fields(summaryService.calculateSummaryModels(analysisId), summaryFields), fields(workloadSummaryReportModel.getSummaryModels(), summaryFields));
+
+        Function<ComplexityModel, List<Object>> complexityFields = model -> Arrays.asList(model.getEasy(), model.getMedium(), model.getHard(), model.getUnknown(), model.getUnsupported());
+        Assert.assertEquals(complexityFields.apply(complexityService.calculateComplexityModels(analysisId)), complexityFields.apply(workloadSummaryReportModel.getComplexityModel()));
+
+        Function<RecommendedTargetsIMSModel, List<Object>> recommendedTargetsIMSFields = model -> Arrays.asList(model.getTotal(), model.getRhv(), model.getOsp(), model.getRhel());
+        Assert.assertEquals(recommendedTargetsIMSFields.apply(recommendedTargetsIMSService.calculateRecommendedTargetsIMS(analysisId)), recommendedTargetsIMSFields.apply(workloadSummaryReportModel.getRecommendedTargetsIMSModel()));
+
+        Function<WorkloadModel, List<Object>> workloadFields = model -> Arrays.asList(model.getWorkload(), model.getOsName(), model.getClusters(), model.getVms());
+        Assert.assertEquals(fields(workloadService.calculateWorkloadsModels(analysisId), workloadFields), fields(workloadSummaryReportModel.getWorkloadModels(), workloadFields));
+
+        Function<FlagModel, List<Object>> flagFields = model -> Arrays.asList(model.getFlag(), model.getOsName(), model.getClusters(), model.getVms());
+        Assert.assertEquals(fields(flagService.calculateFlagModels(analysisId), flagFields), fields(workloadSummaryReportModel.getFlagModels(), flagFields));
+
+        Function<ScanRunModel, List<Object>> scanRunFields = model -> Arrays.asList(model.getTarget(), model.getDate(), model.getType());
+        Assert.assertEquals(new HashSet<>(fields(scanRunService.calculateScanRunModels(analysisId), scanRunFields)), new HashSet<>(fields(workloadSummaryReportModel.getScanRunModels(), scanRunFields)));
+    }
+
+    private static <T> List<List<Object>> fields(Collection<T> models, Function<T, List<Object>> fields) {
+        return models.stream().map(fields).collect(Collectors.toList());
+    }
 }
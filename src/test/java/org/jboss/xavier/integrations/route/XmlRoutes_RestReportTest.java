@@ -16,6 +16,7 @@ import org.jboss.xavier.integrations.route.dataformat.CustomizedMultipartDataFor
 import org.jboss.xavier.integrations.route.model.PageBean;
 import org.jboss.xavier.integrations.route.model.SortBean;
 import org.jboss.xavier.integrations.route.model.WorkloadInventoryFilterBean;
+import org.jboss.xavier.integrations.route.model.WorkloadInventoryReportCursor;
 import org.jboss.xavier.integrations.util.TestUtil;
 import org.junit.Assert;
 import org.junit.Before;
@@ -210,6 +211,37 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.stop();
     }
 
+    @Test
+    public void xmlRouteBuilder_RestReportId_IdParamGiven_IfNoneMatchGiven_ShouldReturnNotModified304StatusWithoutCallingFindById() throws Exception {
+        //Given
+        AnalysisModel analysisModel = analysisService.buildAndSave("report name", "report desc", "file name", "mrizzi@redhat.com");
+
+        //When
+        camelContext.start();
+        TestUtil.startUsernameRoutes(camelContext);
+        camelContext.startRoute("report-get-details");
+
+        Map<String, Long> variables = new HashMap<>();
+        variables.put("id", analysisModel.getId());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TestUtil.HEADER_RH_IDENTITY, TestUtil.getBase64RHIdentity());
+        ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}", HttpMethod.GET, new HttpEntity<>(null, headers), String.class, variables);
+
+        headers.set(HttpHeaders.IF_NONE_MATCH, response.getHeaders().getETag());
+        ResponseEntity<String> notModifiedResponse = restTemplate.exchange(camel_context + "report/{id}", HttpMethod.GET, new HttpEntity<>(null, headers), String.class, variables);
+
+        //Then
+        verify(analysisService, times(1)).findByOwnerAndId("mrizzi@redhat.com", analysisModel.getId());
+        assertThat(response.getStatusCodeValue()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeaders().getETag()).startsWith("\"");
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("private, no-cache");
+        assertThat(notModifiedResponse.getStatusCodeValue()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(notModifiedResponse.getBody()).isNull();
+        assertThat(notModifiedResponse.getHeaders().getETag()).isEqualTo(response.getHeaders().getETag());
+        camelContext.stop();
+    }
+
     @Test
     public void xmlRouteBuilder_RestReportIdInitialSavingsEstimation_IdParamGiven_ShouldCallFindOneByAnalysisId() throws Exception {
 
@@ -217,6 +249,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.start();
         TestUtil.startUsernameRoutes(camelContext);
         camelContext.startRoute("reports-get-details");
+        camelContext.startRoute("report-snapshot-get");
 
         HttpHeaders headers = new HttpHeaders();
         headers.set(TestUtil.HEADER_RH_IDENTITY, TestUtil.getBase64RHIdentity());
@@ -234,6 +267,99 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.stop();
     }
 
+    @Test
+    public void xmlRouteBuilder_RestReportIdWorkloadInventory_IdParamGiven_CursorParamGiven_ShouldCallFindByAnalysisIdAfterCursor() throws Exception {
+        //Given
+
+        //When
+        camelContext.start();
+        TestUtil.startUsernameRoutes(camelContext);
+        camelContext.startRoute("to-paginationBean");
+        camelContext.startRoute("to-sortBean");
+        camelContext.startRoute("to-workloadInventoryFilterBean");
+        camelContext.startRoute("workload-inventory-report-get-details");
+        Map<String, Object> variables = new HashMap<>();
+        Long one = 1L;
+        variables.put("id", one);
+        String cursor = new WorkloadInventoryReportCursor("provider", null, "cluster", "vm", 5L).encode();
+        variables.put("cursor", cursor);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TestUtil.HEADER_RH_IDENTITY, TestUtil.getBase64RHIdentity());
+        HttpEntity<String> entity = new HttpEntity<>(null, headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory?cursor={cursor}&withTotal=true", HttpMethod.GET, entity, String.class, variables);
+
+        //Then
+        PageBean pageBean = new PageBean(0, 10);
+        SortBean sortBean = new SortBean(null, true);
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+
+        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisIdAfterCursor("mrizzi@redhat.com", one, cursor, pageBean, sortBean, filterBean, true);
+        verify(workloadInventoryReportService, never()).findByAnalysisOwnerAndAnalysisId("mrizzi@redhat.com", one, pageBean, sortBean, filterBean);
+        assertThat(response).isNotNull();
+        camelContext.stop();
+    }
+
+    @Test
+    public void xmlRouteBuilder_RestReportIdWorkloadInventory_IdParamGiven_MalformedCursorParamGiven_ShouldRespondBadRequest() throws Exception {
+        //Given
+
+        //When
+        camelContext.start();
+        TestUtil.startUsernameRoutes(camelContext);
+        camelContext.startRoute("to-paginationBean");
+        camelContext.startRoute("to-sortBean");
+        camelContext.startRoute("to-workloadInventoryFilterBean");
+        camelContext.startRoute("workload-inventory-report-get-details");
+        Map<String, Object> variables = new HashMap<>();
+        Long one = 1L;
+        variables.put("id", one);
+        variables.put("cursor", "not-a-cursor");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TestUtil.HEADER_RH_IDENTITY, TestUtil.getBase64RHIdentity());
+        HttpEntity<String> entity = new HttpEntity<>(null, headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory?cursor={cursor}", HttpMethod.GET, entity, String.class, variables);
+
+        //Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        camelContext.stop();
+    }
+
+    @Test
+    public void xmlRouteBuilder_RestReportIdWorkloadInventory_IdParamGiven_WithFacetCountsParamGiven_ShouldCallFindByAnalysisIdWithFacetCounts() throws Exception {
+        //Given
+
+        //When
+        camelContext.start();
+        TestUtil.startUsernameRoutes(camelContext);
+        camelContext.startRoute("to-paginationBean");
+        camelContext.startRoute("to-sortBean");
+        camelContext.startRoute("to-workloadInventoryFilterBean");
+        camelContext.startRoute("workload-inventory-report-get-details");
+        Map<String, Object> variables = new HashMap<>();
+        Long one = 1L;
+        variables.put("id", one);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TestUtil.HEADER_RH_IDENTITY, TestUtil.getBase64RHIdentity());
+        HttpEntity<String> entity = new HttpEntity<>(null, headers);
+
+        ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory?withFacetCounts=true", HttpMethod.GET, entity, String.class, variables);
+
+        //Then
+        PageBean pageBean = new PageBean(0, 10);
+        SortBean sortBean = new SortBean(null, true);
+        WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
+
+        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisIdWithFacetCounts("mrizzi@redhat.com", one, pageBean, sortBean, filterBean);
+        verify(workloadInventoryReportService, never()).findByAnalysisOwnerAndAnalysisId("mrizzi@redhat.com", one, pageBean, sortBean, filterBean);
+        assertThat(response).isNotNull();
+        camelContext.stop();
+    }
+
     @Test
     public void xmlRouteBuilder_RestReportIdWorkloadInventory_IdParamGiven_PageParamGiven_SizeParamGiven_ShouldCallFindByAnalysisId() throws Exception {
         //Given
@@ -510,7 +636,6 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.start();
         TestUtil.startUsernameRoutes(camelContext);
         camelContext.startRoute("workload-inventory-report-get-details-as-csv");
-        camelContext.startRoute("workload-inventory-report-model-to-csv");
         Map<String, Object> variables = new HashMap<>();
         Long one = 1L;
         variables.put("id", one);
@@ -521,7 +646,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory/csv" , HttpMethod.GET, entity, String.class, variables);
 
         //Then
-        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisId("mrizzi@redhat.com", one);
+        verify(workloadInventoryReportService).streamCsvByAnalysisOwnerAndAnalysisId("mrizzi@redhat.com", one);
         Assert.assertTrue(response.getHeaders().get("Content-Type").contains("text/csv"));
         Assert.assertTrue(response.getHeaders().get("Content-Disposition").contains("attachment;filename=workloadInventory_1.csv"));
         Assert.assertNull(response.getHeaders().get("whatever"));
@@ -575,7 +700,6 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.startRoute("to-sortBean");
         camelContext.startRoute("to-workloadInventoryFilterBean");
         camelContext.startRoute("filtered-workload-inventory-report-get-details-as-csv");
-        camelContext.startRoute("workload-inventory-report-model-to-csv");
 
         ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory/filtered-csv", HttpMethod.GET, entity, String.class, variables);
 
@@ -583,7 +707,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         SortBean sortBean = new SortBean(null, true);
         WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
 
-        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean);
+        verify(workloadInventoryReportService).streamCsvByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean);
         Assert.assertTrue(response.getHeaders().get("Content-Type").contains("text/csv"));
         Assert.assertTrue(response.getHeaders().get("Content-Disposition").contains("attachment;filename=workloadInventory_1.csv"));
         Assert.assertNull(response.getHeaders().get("whatever"));
@@ -659,7 +783,6 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.startRoute("to-sortBean");
         camelContext.startRoute("to-workloadInventoryFilterBean");
         camelContext.startRoute("filtered-workload-inventory-report-get-details-as-csv");
-        camelContext.startRoute("workload-inventory-report-model-to-csv");
 
         ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory/filtered-csv?" + sb.toString(), HttpMethod.GET, entity, String.class, variables);
 
@@ -669,7 +792,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         WorkloadInventoryFilterBean filterBean = new WorkloadInventoryFilterBean();
         filterBean.setDatacenters(new HashSet<>(Arrays.asList(datacenter1, datacenter2)));
 
-        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean);
+        verify(workloadInventoryReportService).streamCsvByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean);
         Assert.assertTrue(response.getHeaders().get("Content-Type").contains("text/csv"));
         Assert.assertTrue(response.getHeaders().get("Content-Disposition").contains("attachment;filename=workloadInventory_1.csv"));
         assertThat(response).isNotNull();
@@ -789,7 +912,6 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.startRoute("to-sortBean");
         camelContext.startRoute("to-workloadInventoryFilterBean");
         camelContext.startRoute("filtered-workload-inventory-report-get-details-as-csv");
-        camelContext.startRoute("workload-inventory-report-model-to-csv");
 
         ResponseEntity<String> response = restTemplate.exchange(camel_context + "report/{id}/workload-inventory/filtered-csv?" + sb.toString(), HttpMethod.GET, entity, String.class, variables);
 
@@ -807,7 +929,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         filterBean.setFlagsIMS(new HashSet<>(Arrays.asList(flag1, flag2)));
         filterBean.setComplexities(new HashSet<>(Arrays.asList(complexity1, complexity2)));
 
-        verify(workloadInventoryReportService).findByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean); // check right params are use
+        verify(workloadInventoryReportService).streamCsvByAnalysisOwnerAndAnalysisId(analysisModel.getOwner(), analysisModel.getId(), sortBean, filterBean); // check right params are use
         Assert.assertTrue(response.getHeaders().get("Content-Type").contains("text/csv"));
         Assert.assertTrue(response.getHeaders().get("Content-Disposition").contains("attachment;filename=workloadInventory_1.csv"));
         assertThat(response).isNotNull();
@@ -852,6 +974,7 @@ public class XmlRoutes_RestReportTest extends XavierCamelTest {
         camelContext.start();
         TestUtil.startUsernameRoutes(camelContext);
         camelContext.startRoute("workload-summary-report-get");
+        camelContext.startRoute("report-snapshot-get");
         Map<String, Object> variables = new HashMap<>();
         Long analysisId = 11L;
         variables.put("id", analysisId);
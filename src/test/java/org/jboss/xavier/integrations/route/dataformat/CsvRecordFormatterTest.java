@@ -0,0 +1,35 @@
+package org.jboss.xavier.integrations.route.dataformat;
+
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CsvRecordFormatterTest {
+
+    private final CsvRecordFormatter<WorkloadInventoryReportModel> csvRecordFormatter = new CsvRecordFormatter<>(WorkloadInventoryReportModel.class);
+
+    @Test
+    public void csvRecordFormatter_formatHeader_ShouldReturnTheColumnNamesInTheOrderOfTheirPositions() {
+        assertThat(csvRecordFormatter.formatHeader()).isEqualTo("Provider,Datacenter,Cluster,VM name,OS type,Operating system description,Disk space,Memory,CPU cores,Workload,Effort,Recommended targets,Flags IMS,Product,Version,HostName\n");
+    }
+
+    @Test
+    public void csvRecordFormatter_format_ReportGiven_ShouldReturnItsLineWithEmptyNullValues() {
+        // Given
+        WorkloadInventoryReportModel workloadInventoryReportModel = new WorkloadInventoryReportModel();
+        workloadInventoryReportModel.setProvider("ProviderA");
+        workloadInventoryReportModel.setVmName("VmNameA");
+        workloadInventoryReportModel.setDiskSpace(100L);
+        workloadInventoryReportModel.setWorkloads(Collections.singleton("Tomcat"));
+        workloadInventoryReportModel.setFlagsIMS(Collections.emptySet());
+
+        // When
+        String line = csvRecordFormatter.format(workloadInventoryReportModel);
+
+        // Then
+        assertThat(line).isEqualTo("ProviderA,,,VmNameA,,,100,,,Tomcat,,,,,,\n");
+    }
+}
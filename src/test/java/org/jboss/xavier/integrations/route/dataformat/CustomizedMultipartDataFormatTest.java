@@ -4,17 +4,28 @@ import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.impl.DefaultCamelContext;
 import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.util.UnitOfWorkHelper;
+import org.apache.commons.io.IOUtils;
+import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
 
 import javax.mail.MessagingException;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CustomizedMultipartDataFormatTest {
-    
+    @Rule
+    public TemporaryFolder spoolDirectory = new TemporaryFolder();
+
     @Test
     public void customizedMultipartDataFormat_unmarshal_MultipartMessage5FilesGiven_ShouldReturn5Attachments() throws IOException, MessagingException {
         // Given
@@ -46,4 +57,27 @@ public class CustomizedMultipartDataFormatTest {
         // Then
         assertThat(message).isEqualTo(stream);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void customizedMultipartDataFormat_unmarshal_MultipartMessageBiggerThanThresholdGiven_ShouldSpoolToFileAndDeleteItOnCompletion() throws IOException, MessagingException {
+        // Given
+        File spoolFolder = spoolDirectory.getRoot();
+        CustomizedMultipartDataFormat customizedMultipartDataFormat = new CustomizedMultipartDataFormat(16, spoolFolder);
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("Content-Type", "multipart/text");
+
+        InputStream stream = this.getClass().getClassLoader().getResourceAsStream("mime-message-several-files-sample.txt");
+
+        // When
+        Message message = (Message) customizedMultipartDataFormat.unmarshal(exchange, stream);
+
+        // Then
+        assertThat(message.getAttachments().size()).isEqualTo(5);
+        assertThat(IOUtils.toString(message.getAttachmentObject("nA9mj6GR").getDataHandler().getInputStream(), StandardCharsets.UTF_8)).startsWith("select lower(substring(email_address");
+        assertThat(((Map) message.getHeader(RouteBuilderExceptionHandler.MA_METADATA, Map.class)).get("customerid")).isEqualTo("CID12345");
+        assertThat(spoolFolder.listFiles()).hasSize(1);
+
+        UnitOfWorkHelper.doneSynchronizations(exchange, exchange.handoverCompletions(), LoggerFactory.getLogger(CustomizedMultipartDataFormatTest.class));
+        assertThat(spoolFolder.listFiles()).isEmpty();
+    }
+}
@@ -0,0 +1,119 @@
+package org.jboss.xavier.integrations.route.stage;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StageExecutorTest {
+    private final CamelContext camelContext = new DefaultCamelContext();
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    private final CountDownLatch bothIndependentStagesStarted = new CountDownLatch(2);
+
+    @Before
+    public void setUp() throws Exception {
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                // each independent stage completes only once the other one has started too
+                from("direct:first").process(exchange -> awaitIndependentStages()).setBody(constant("first")).setHeader("stage", constant("first"));
+                from("direct:second").process(exchange -> awaitIndependentStages()).setBody(constant("second")).setHeader("stage", constant("second"));
+                from("direct:dependent").setBody(simple("dependent on ${body}"));
+                from("direct:failing").process(exchange -> { throw new IllegalStateException("failing stage"); });
+            }
+        });
+        camelContext.addRoutes(new RouteBuilderExceptionHandler() {
+            @Override
+            public void configure() throws Exception {
+                super.configure();
+                // the analysis stages' routes handle their exceptions
+                from("direct:handled-failing").process(exchange -> { throw new IllegalStateException("handled failing stage"); });
+            }
+        });
+        camelContext.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        camelContext.stop();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void process_IndependentAndDependentStagesGiven_ShouldRunIndependentStagesConcurrentlyAndKeepTheFirstStageBody() throws Exception {
+        StageExecutor stageExecutor = new StageExecutor(camelContext.createProducerTemplate(), executorService)
+                .stage("first", "direct:first")
+                .stage("second", "direct:second")
+                .stage("dependent", "direct:dependent", "second");
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody("payload");
+
+        stageExecutor.process(exchange);
+
+        assertThat(exchange.getException()).isNull();
+        assertThat(exchange.getIn().getBody()).isEqualTo("first");
+        assertThat(exchange.getIn().getHeader("stage")).isEqualTo("first");
+        assertThat(exchange.getProperty(StageExecutor.STAGE_TIMINGS, Map.class)).containsOnlyKeys("first", "second", "dependent");
+    }
+
+    @Test
+    public void process_FailingStagesGiven_ShouldSkipTheDependentStagesAndPropagateTheFailure() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        new StageExecutor(camelContext.createProducerTemplate(), Runnable::run)
+                .stage("dependency", "direct:failing")
+                .stage("dependent", "direct:dependent", "dependency")
+                .process(exchange);
+        assertThat(exchange.getException()).isInstanceOf(IllegalStateException.class);
+        assertThat(exchange.getException().getSuppressed()).isEmpty();
+        assertThat(exchange.getProperty(StageExecutor.STAGE_TIMINGS, Map.class)).containsOnlyKeys("dependency");
+
+        exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody("payload");
+        new StageExecutor(camelContext.createProducerTemplate(), Runnable::run)
+                .stage("dependent", "direct:dependent")
+                .stage("failing", "direct:failing")
+                .stage("skipped", "direct:dependent", "failing")
+                .stage("other failing", "direct:failing")
+                .process(exchange);
+        assertThat(exchange.getException()).isInstanceOf(IllegalStateException.class);
+        assertThat(exchange.getException().getSuppressed()).hasSize(1).allMatch(IllegalStateException.class::isInstance);
+        assertThat(exchange.getProperty(StageExecutor.STAGE_TIMINGS, Map.class)).containsOnlyKeys("dependent", "failing", "other failing");
+    }
+
+    @Test
+    public void process_StageFailingInARouteHandlingTheExceptionGiven_ShouldSkipTheDependentStagesAndPropagateTheFailure() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody("payload");
+        new StageExecutor(camelContext.createProducerTemplate(), Runnable::run)
+                .stage("dependency", "direct:handled-failing")
+                .stage("dependent", "direct:dependent", "dependency")
+                .process(exchange);
+
+        assertThat(exchange.getException()).isInstanceOf(IllegalStateException.class).hasMessage("handled failing stage");
+        assertThat(exchange.getProperty(StageExecutor.STAGE_TIMINGS, Map.class)).containsOnlyKeys("dependency");
+        assertThat(exchange.getIn().getBody()).isEqualTo("payload");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stage_UnknownDependencyGiven_ShouldThrowException() {
+        new StageExecutor(camelContext.createProducerTemplate(), Runnable::run).stage("dependent", "direct:dependent", "unknown");
+    }
+
+    private void awaitIndependentStages() throws InterruptedException {
+        bothIndependentStagesStarted.countDown();
+        assertThat(bothIndependentStagesStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,42 @@
+package org.jboss.xavier.integrations.route.strategy;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.jboss.xavier.analytics.pojo.input.UploadFormInputDataModel;
+import org.jboss.xavier.integrations.route.RouteBuilderExceptionHandler;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UploadFormInputDataModelAggregationStrategyTest {
+    private final CamelContext camelContext = new DefaultCamelContext();
+
+    @Test
+    public void aggregate_ExchangesAggregatedConcurrentlyGiven_ShouldSumHypervisorsAndTotalDiskSpace() {
+        UploadFormInputDataModelAggregationStrategy strategy = new UploadFormInputDataModelAggregationStrategy();
+        Exchange first = exchangeWith(1, 1000L);
+        Exchange result = strategy.aggregate(null, first);
+
+        List<Exchange> others = IntStream.range(0, 100).mapToObj(i -> exchangeWith(2, 500L)).collect(Collectors.toList());
+        others.parallelStream().forEach(exchange -> strategy.aggregate(result, exchange));
+
+        UploadFormInputDataModel totals = result.getIn().getHeader(RouteBuilderExceptionHandler.UPLOADFORMDATA, UploadFormInputDataModel.class);
+        assertThat(totals.getHypervisor()).isEqualTo(201);
+        assertThat(totals.getTotalDiskSpace()).isEqualTo(51000L);
+    }
+
+    private Exchange exchangeWith(int hypervisor, long totalDiskSpace) {
+        UploadFormInputDataModel model = new UploadFormInputDataModel();
+        model.setHypervisor(hypervisor);
+        model.setTotalDiskSpace(totalDiskSpace);
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(model);
+        return exchange;
+    }
+}
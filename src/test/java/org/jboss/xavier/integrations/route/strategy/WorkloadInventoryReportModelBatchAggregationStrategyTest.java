@@ -0,0 +1,41 @@
+package org.jboss.xavier.integrations.route.strategy;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.jboss.xavier.analytics.pojo.output.workload.inventory.WorkloadInventoryReportModel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkloadInventoryReportModelBatchAggregationStrategyTest {
+    private final CamelContext camelContext = new DefaultCamelContext();
+
+    @Test
+    public void aggregate_BatchesCompletedOutOfOrderGiven_ShouldReturnTheReportsInSplitOrder() {
+        WorkloadInventoryReportModelBatchAggregationStrategy strategy = new WorkloadInventoryReportModelBatchAggregationStrategy();
+        Exchange result = strategy.aggregate(null, exchangeWith(2, "vm5"));
+        strategy.aggregate(result, exchangeWith(0, "vm1", "vm2"));
+        strategy.aggregate(result, exchangeWith(1, "vm3", "vm4"));
+        strategy.onCompletion(result);
+
+        List<WorkloadInventoryReportModel> reports = result.getIn().getBody(List.class);
+        assertThat(reports).extracting(WorkloadInventoryReportModel::getVmName).containsExactly("vm1", "vm2", "vm3", "vm4", "vm5");
+    }
+
+    private Exchange exchangeWith(int splitIndex, String... vmNames) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.setProperty(Exchange.SPLIT_INDEX, splitIndex);
+        exchange.getIn().setBody(Arrays.stream(vmNames).map(vmName -> {
+            WorkloadInventoryReportModel model = new WorkloadInventoryReportModel();
+            model.setVmName(vmName);
+            return model;
+        }).collect(Collectors.toList()));
+        return exchange;
+    }
+}
@@ -15,6 +15,7 @@ public class TestUtil
         camelContext.startRoute("add-username-header");
         camelContext.startRoute("check-authenticated-request");
         camelContext.startRoute("check-authorized-request");
+        camelContext.startRoute("check-not-modified");
     }
 
     public static String getBase64RHIdentity()